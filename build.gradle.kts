@@ -6,6 +6,7 @@ plugins {
     `maven-publish`
     alias(libs.plugins.hytale)
     alias(libs.plugins.shadow)
+    alias(libs.plugins.jmh)
 }
 
 val javaVersion = 25
@@ -35,6 +36,17 @@ dependencies {
     // this mod is optional, but is included so you can preview your mod icon
     // in the in-game mod list via the /modlist command
     runtimeOnly(libs.bettermodlist)
+
+    jmhImplementation(libs.jol.core)
+
+    testImplementation(platform(libs.junit.bom))
+    testImplementation(libs.junit.jupiter)
+    testRuntimeOnly(libs.junit.platform.launcher)
+}
+
+// the server and annotations are provided at runtime by the game, tests run against them directly
+configurations.testImplementation {
+    extendsFrom(configurations.compileOnly.get())
 }
 
 java {
@@ -45,6 +57,75 @@ java {
     withSourcesJar()
 }
 
+tasks.test {
+    useJUnitPlatform()
+}
+
+val jmhResults = layout.buildDirectory.file("results/jmh/results.json")
+val jmhBaseline = layout.projectDirectory.file("src/jmh/baseline.json")
+
+jmh {
+    jmhVersion = libs.versions.jmh
+    resultFormat = "JSON"
+    // the plugin writes results.txt by default, whatever the format
+    resultsFile = jmhResults
+    // e.g. -PjmhIncludes=PlayerCacheBenchmark
+    providers.gradleProperty("jmhIncludes").orNull?.let { includes = listOf(it) }
+}
+
+// compares every benchmark of the run with the stored baseline of the same benchmark and parameters
+tasks.register("jmhCheck") {
+    group = "verification"
+    description = "Runs the benchmarks and fails if any is slower than the baseline by more than -PjmhTolerance (default 0.1), skipped without a baseline."
+    dependsOn(tasks.named("jmh"))
+
+    val tolerance = providers.gradleProperty("jmhTolerance").map { it.toDouble() }.orElse(0.1)
+    val resultsFile = jmhResults.map { it.asFile }
+    val baselineFile = jmhBaseline.asFile
+    doLast {
+        // baselines are machine specific, so none is committed
+        if (!baselineFile.exists()) {
+            logger.warn("No benchmark baseline at $baselineFile, skipping the comparison. Record one with ./gradlew jmh jmhUpdateBaseline")
+            return@doLast
+        }
+
+        fun read(file: File): Map<String, Pair<String, Double>> = (groovy.json.JsonSlurper().parse(file) as List<*>).associate {
+            val result = it as Map<*, *>
+            val params = (result["params"] as Map<*, *>?).orEmpty().entries
+                .sortedBy { param -> param.key.toString() }
+                .joinToString(",", "{", "}") { param -> "${param.key}=${param.value}" }
+            val metric = result["primaryMetric"] as Map<*, *>
+            "${result["benchmark"]}$params" to (result["mode"] as String to (metric["score"] as Number).toDouble())
+        }
+
+        val baseline = read(baselineFile)
+        val results = read(resultsFile.get())
+        // a benchmark without a baseline would otherwise pass unchecked
+        val missing = results.keys - baseline.keys
+        if (missing.isNotEmpty()) {
+            throw GradleException("No baseline for these benchmarks in $baselineFile, record one with ./gradlew jmh jmhUpdateBaseline:\n" + missing.joinToString("\n"))
+        }
+        val regressions = results.mapNotNull { (name, result) ->
+            val (mode, score) = result
+            val previous = baseline.getValue(name).second
+            // throughput should not drop, every other mode measures time which should not grow
+            val change = if (mode == "thrpt") (previous - score) / previous else (score - previous) / previous
+            if (change > tolerance.get()) "$name: %.3f -> %.3f (%+.1f%%)".format(previous, score, change * 100) else null
+        }
+        if (regressions.isNotEmpty()) {
+            throw GradleException("Benchmark regressions against $baselineFile:\n" + regressions.joinToString("\n"))
+        }
+    }
+}
+
+tasks.register<Copy>("jmhUpdateBaseline") {
+    group = "verification"
+    description = "Stores the results of the last benchmark run as the baseline for jmhCheck."
+    from(jmhResults)
+    into(jmhBaseline.asFile.parentFile)
+    rename { jmhBaseline.asFile.name }
+}
+
 tasks.named<ProcessResources>("processResources") {
     var replaceProperties = mapOf(
         "plugin_group" to findProperty("plugin_group"),
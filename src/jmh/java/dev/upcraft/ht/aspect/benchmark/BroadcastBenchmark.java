@@ -0,0 +1,113 @@
+package dev.upcraft.ht.aspect.benchmark;
+
+import dev.upcraft.ht.aspect.util.HiddenPlayerIndex;
+import dev.upcraft.ht.aspect.util.PlayerHelper;
+import org.jspecify.annotations.Nullable;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+/**
+ * Broadcast to simulated recipients spread over several worlds, each world backed by its own single thread like a
+ * real world tick thread. Compares delivering to every world on the calling thread, asking each recipient, with the
+ * per-world fan-out that consults the hidden-player index before asking each recipient.
+ * <p>
+ * {@code PlayerRef} cannot be created outside a running server, so both variants run the real
+ * {@link PlayerHelper#runOnEach} and {@link PlayerHelper#sendToAll} against {@link Recipient}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BroadcastBenchmark {
+
+    @Param({"1000", "10000"})
+    public int recipients;
+
+    @Param({"4"})
+    public int worlds;
+
+    /**
+     * Number of recipients that hide the sender.
+     */
+    @Param({"0", "10"})
+    public int hiders;
+
+    private final List<ExecutorService> executors = new ArrayList<>();
+    private final List<List<Recipient>> players = new ArrayList<>();
+    private final HiddenPlayerIndex index = new HiddenPlayerIndex();
+    private final UUID sender = UUID.randomUUID();
+    private final Object message = new Object();
+
+    @Setup(Level.Trial)
+    public void setup() {
+        for (int i = 0; i < this.worlds; i++) {
+            this.executors.add(Executors.newSingleThreadExecutor());
+            this.players.add(new ArrayList<>());
+        }
+        for (int i = 0; i < this.recipients; i++) {
+            var recipient = new Recipient(UUID.randomUUID());
+            if (i < this.hiders) {
+                recipient.hidden.add(this.sender);
+                this.index.hide(recipient.id, this.sender);
+            }
+            this.players.get(i % this.worlds).add(recipient);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        this.executors.forEach(ExecutorService::shutdownNow);
+    }
+
+    @Benchmark
+    public void sequential() {
+        for (List<Recipient> world : this.players) {
+            this.sendToAll(world, null);
+        }
+    }
+
+    @Benchmark
+    public void fanOut() {
+        var checkOnly = Set.copyOf(this.index.getViewersHiding(this.sender));
+        var worlds = IntStream.range(0, this.worlds).boxed().toList();
+        PlayerHelper.runOnEach(worlds, this.executors::get, world -> this.sendToAll(this.players.get(world), checkOnly)).join();
+    }
+
+    private void sendToAll(List<Recipient> recipients, @Nullable Set<UUID> checkOnly) {
+        PlayerHelper.sendToAll(recipients, this.sender, checkOnly, recipient -> recipient.id, Recipient::isHidden, recipient -> recipient.send(this.message));
+    }
+
+    /**
+     * Stands in for a {@code PlayerRef}: the hidden check is a set lookup behind a lock, delivery bumps a counter.
+     */
+    static final class Recipient {
+
+        final UUID id;
+        final Set<UUID> hidden = new HashSet<>();
+        final AtomicLong received = new AtomicLong();
+
+        Recipient(UUID id) {
+            this.id = id;
+        }
+
+        synchronized boolean isHidden(UUID target) {
+            return this.hidden.contains(target);
+        }
+
+        void send(Object message) {
+            this.received.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package dev.upcraft.ht.aspect.benchmark;
+
+import dev.upcraft.ht.aspect.util.Env;
+import dev.upcraft.ht.aspect.util.config.AspectConfig;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Raw environment lookups compared with reading an already parsed config key, which is what hot paths should use.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EnvBenchmark {
+
+    @Benchmark
+    @Threads(4)
+    public Optional<String> getPresent() {
+        return Env.get("PATH");
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Optional<String> getMissing() {
+        return Env.get("ASPECT_BENCHMARK_MISSING");
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String getOrDefault() {
+        return Env.getOrDefault("ASPECT_BENCHMARK_MISSING", () -> "default");
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long configKey() {
+        return AspectConfig.PLAYER_CACHE_NEGATIVE_TTL_SECONDS.getLong();
+    }
+}
@@ -0,0 +1,49 @@
+package dev.upcraft.ht.aspect.benchmark;
+
+import dev.upcraft.ht.aspect.api.auth.PlayerGameProfile;
+import dev.upcraft.ht.aspect.util.cache.GuardedProfileSource;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caller-observed latency of a lookup against a slow, failing {@link StubProfileSource}, with and without the guard.
+ * Once the circuit opens, guarded lookups should return in microseconds instead of waiting for the stub.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+@Threads(8)
+public class GuardedProfileSourceBenchmark {
+
+    @Param({"0.0", "0.5", "1.0"})
+    public double errorRate;
+
+    @Param({"true", "false"})
+    public boolean guarded;
+
+    private StubProfileSource stub;
+    private GuardedProfileSource guard;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        this.stub = new StubProfileSource(20, this.errorRate);
+        this.guard = new GuardedProfileSource(this.stub, 1_000, 100, 64, Duration.ofMillis(100), 5, Duration.ofSeconds(1));
+    }
+
+    @Benchmark
+    public PlayerGameProfile lookup() {
+        var id = UUID.randomUUID();
+        try {
+            return (this.guarded ? this.guard.lookupById(id) : this.stub.lookupById(id)).join();
+        } catch (CompletionException e) {
+            return new PlayerGameProfile(id, null);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package dev.upcraft.ht.aspect.benchmark;
+
+import dev.upcraft.ht.aspect.api.auth.PlayerGameProfile;
+import dev.upcraft.ht.aspect.util.PlayerCache;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Cached lookups on a populated {@link PlayerCache}, delivered on the calling thread like a lookup from a world thread
+ * whose result is already known. The profile source is never reached. Persistence runs in the background as on a
+ * server, so updates do not wait for the disk.
+ * <p>
+ * No server is needed: without one, loading skips the server options and results are delivered on the profile lookup
+ * executor instead of a world.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class PlayerCacheBenchmark {
+
+    @Param({"10000", "1000000", "5000000"})
+    public int entries;
+
+    private Path directory;
+    private PlayerCache cache;
+    private UUID[] ids;
+    private String[] names;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        this.directory = Files.createTempDirectory("aspect-player-cache");
+        this.cache = new PlayerCache(this.directory.resolve("playercache.json"), new StubProfileSource(0, 0));
+        this.cache.syncLoad();
+        this.ids = new UUID[this.entries];
+        this.names = new String[this.entries];
+        populate(this.cache, this.directory, this.ids, this.names);
+        this.cache.startPersistence();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        this.cache.shutdown();
+        delete(this.directory);
+    }
+
+    @Benchmark
+    public PlayerGameProfile lookupById() {
+        return this.cache.getProfileForId(this.ids[ThreadLocalRandom.current().nextInt(this.entries)], Runnable::run).join();
+    }
+
+    @Benchmark
+    public PlayerGameProfile lookupByUsername() {
+        return this.cache.getProfileForUsername(this.names[ThreadLocalRandom.current().nextInt(this.entries)], Runnable::run).join();
+    }
+
+    // only measures the completion index with ASPECT_PLAYER_CACHE_NAME_COMPLETION=true, it is off by default with the binary format
+    @Benchmark
+    public List<String> completeUsername() {
+        return this.cache.completeUsername("player" + ThreadLocalRandom.current().nextInt(100), 10);
+    }
+
+    @Benchmark
+    public boolean update() {
+        int i = ThreadLocalRandom.current().nextInt(this.entries);
+        return this.cache.updatePlayerProfile(this.ids[i], this.names[i]);
+    }
+
+    /**
+     * Imports all entries at once, updating them one by one would flush (and compact) the journal along the way.
+     */
+    static void populate(PlayerCache cache, Path directory, UUID[] ids, String[] names) throws IOException {
+        var now = System.currentTimeMillis();
+        var file = directory.resolve("populate.json");
+        try (var writer = Files.newBufferedWriter(file)) {
+            writer.write("{\"values\":[");
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = UUID.randomUUID();
+                names[i] = "player" + i;
+                writer.write("%s{\"uuid\":\"%s\",\"name\":\"%s\",\"last_seen\":%s,\"last_verified\":%s}".formatted(i > 0 ? "," : "", ids[i], names[i], now, now));
+            }
+            writer.write("]}");
+        }
+        cache.importJson(file);
+        Files.delete(file);
+        cache.compact();
+    }
+
+    static void delete(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    /**
+     * Full saves and cold loads of the configured on-disk format, one per invocation. Saves are synchronous, there is
+     * no background persistence.
+     */
+    @State(Scope.Benchmark)
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    @Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+    public static class Persistence {
+
+        @Param({"10000", "1000000", "5000000"})
+        public int entries;
+
+        private Path directory;
+        private PlayerCache cache;
+        private UUID[] ids;
+        private String[] names;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            this.directory = Files.createTempDirectory("aspect-player-cache");
+            this.cache = new PlayerCache(this.directory.resolve("playercache.json"), new StubProfileSource(0, 0));
+            this.cache.syncLoad();
+            this.ids = new UUID[this.entries];
+            this.names = new String[this.entries];
+            populate(this.cache, this.directory, this.ids, this.names);
+        }
+
+        @Setup(Level.Invocation)
+        public void prepare() {
+            // one change since the last save, so the save is never skipped
+            int i = ThreadLocalRandom.current().nextInt(this.entries);
+            this.cache.updatePlayerProfile(this.ids[i], this.names[i]);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            this.cache.shutdown();
+            delete(this.directory);
+        }
+
+        @Benchmark
+        public void save() {
+            this.cache.syncSave();
+        }
+
+        @Benchmark
+        public PlayerCache load(Loading loading) {
+            loading.cache.syncLoad();
+            return loading.cache;
+        }
+
+        /**
+         * A fresh cache per {@link #load(Loading)} invocation, shut down once it was measured.
+         */
+        @State(Scope.Thread)
+        public static class Loading {
+
+            private PlayerCache cache;
+
+            @Setup(Level.Invocation)
+            public void open(Persistence persistence) {
+                this.cache = new PlayerCache(persistence.directory.resolve("playercache.json"), new StubProfileSource(0, 0));
+            }
+
+            @TearDown(Level.Invocation)
+            public void close() {
+                this.cache.shutdown();
+            }
+        }
+    }
+}
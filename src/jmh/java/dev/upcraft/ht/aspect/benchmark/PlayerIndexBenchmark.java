@@ -0,0 +1,170 @@
+package dev.upcraft.ht.aspect.benchmark;
+
+import com.google.common.collect.BiMap;
+import com.google.common.collect.HashBiMap;
+import dev.upcraft.ht.aspect.util.cache.CompactPlayerIndex;
+import dev.upcraft.ht.aspect.util.cache.ConcurrentPlayerIndex;
+import dev.upcraft.ht.aspect.util.cache.PlayerIndex;
+import org.jspecify.annotations.Nullable;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+
+/**
+ * Mixed read/write contention: 7 reader threads against 1 writer that keeps renaming players.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PlayerIndexBenchmark {
+
+    @Param({"10000", "1000000"})
+    public int entries;
+
+    @Param({"concurrent", "compact", "legacy"})
+    public String implementation;
+
+    private PlayerIndex index;
+    private UUID[] ids;
+    private String[] names;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        this.index = switch (this.implementation) {
+            case "concurrent" -> new ConcurrentPlayerIndex();
+            case "compact" -> new CompactPlayerIndex();
+            case "legacy" -> new LegacyPlayerIndex();
+            default -> throw new IllegalArgumentException(this.implementation);
+        };
+        this.ids = new UUID[this.entries];
+        this.names = new String[this.entries];
+        for (int i = 0; i < this.entries; i++) {
+            this.ids[i] = UUID.randomUUID();
+            this.names[i] = "player" + i;
+            this.index.put(this.ids[i], new PlayerIndex.Entry(this.names[i], 0L, 0L));
+        }
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(7)
+    public @Nullable String readById() {
+        return this.index.getName(this.ids[ThreadLocalRandom.current().nextInt(this.entries)]);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public PlayerIndex.@Nullable Entry rename() {
+        int i = ThreadLocalRandom.current().nextInt(this.entries);
+        return this.index.put(this.ids[i], new PlayerIndex.Entry(this.names[i] + "_" + ThreadLocalRandom.current().nextInt(4), 0L, 0L));
+    }
+
+    @Benchmark
+    @Group("readOnly")
+    @GroupThreads(8)
+    public @Nullable UUID readByName() {
+        return this.index.getId(this.names[ThreadLocalRandom.current().nextInt(this.entries)]);
+    }
+
+    /**
+     * The original {@code PlayerCache} design, a {@link HashBiMap} guarded by a {@link ReentrantReadWriteLock}.
+     */
+    static class LegacyPlayerIndex implements PlayerIndex {
+
+        private final BiMap<UUID, String> cache = HashBiMap.create();
+        private final Map<UUID, Entry> entries = new HashMap<>();
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+        @Override
+        public @Nullable Entry get(UUID id) {
+            this.lock.readLock().lock();
+            try {
+                return this.entries.get(id);
+            } finally {
+                this.lock.readLock().unlock();
+            }
+        }
+
+        @Override
+        public @Nullable String getName(UUID id) {
+            this.lock.readLock().lock();
+            try {
+                return this.cache.get(id);
+            } finally {
+                this.lock.readLock().unlock();
+            }
+        }
+
+        @Override
+        public @Nullable UUID getId(String name) {
+            this.lock.readLock().lock();
+            try {
+                return this.cache.inverse().get(name);
+            } finally {
+                this.lock.readLock().unlock();
+            }
+        }
+
+        @Override
+        public @Nullable Entry put(UUID id, Entry entry) {
+            this.lock.writeLock().lock();
+            try {
+                var previousOwner = this.cache.inverse().get(entry.name());
+                if (previousOwner != null) {
+                    this.entries.remove(previousOwner);
+                }
+                this.cache.forcePut(id, entry.name());
+                return this.entries.put(id, entry);
+            } finally {
+                this.lock.writeLock().unlock();
+            }
+        }
+
+        @Override
+        public @Nullable Entry remove(UUID id) {
+            this.lock.writeLock().lock();
+            try {
+                this.cache.remove(id);
+                return this.entries.remove(id);
+            } finally {
+                this.lock.writeLock().unlock();
+            }
+        }
+
+        @Override
+        public void clear() {
+            this.lock.writeLock().lock();
+            try {
+                this.cache.clear();
+                this.entries.clear();
+            } finally {
+                this.lock.writeLock().unlock();
+            }
+        }
+
+        @Override
+        public int size() {
+            return this.cache.size();
+        }
+
+        @Override
+        public void forEach(BiConsumer<UUID, Entry> consumer) {
+            this.lock.readLock().lock();
+            try {
+                this.entries.forEach(consumer);
+            } finally {
+                this.lock.readLock().unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package dev.upcraft.ht.aspect.benchmark;
+
+import dev.upcraft.ht.aspect.util.cache.CompactPlayerIndex;
+import dev.upcraft.ht.aspect.util.cache.ConcurrentPlayerIndex;
+import dev.upcraft.ht.aspect.util.cache.PlayerIndex;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds an index once per fork and reports its retained heap size through the {@code bytesPerEntry} counter.
+ * The primary score is the build time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djdk.attach.allowAttachSelf=true")
+public class PlayerIndexFootprintBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int entries;
+
+    @Param({"concurrent", "compact"})
+    public String implementation;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+        public long bytesPerEntry;
+    }
+
+    @Benchmark
+    public PlayerIndex build(Footprint footprint) {
+        PlayerIndex index = switch (this.implementation) {
+            case "concurrent" -> new ConcurrentPlayerIndex();
+            case "compact" -> new CompactPlayerIndex();
+            default -> throw new IllegalArgumentException(this.implementation);
+        };
+        for (int i = 0; i < this.entries; i++) {
+            index.put(UUID.randomUUID(), new PlayerIndex.Entry("player" + i, 0L, 0L));
+        }
+        footprint.bytesPerEntry = GraphLayout.parseInstance(index).totalSize() / this.entries;
+        return index;
+    }
+}
@@ -0,0 +1,117 @@
+package dev.upcraft.ht.aspect.benchmark;
+
+import dev.upcraft.ht.aspect.api.CompiledReflectionHelper;
+import dev.upcraft.ht.aspect.api.ReflectionHelper;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.invoke.MethodHandles;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ToIntFunction;
+
+/**
+ * Reads and writes a private field of every element in an array, the way a hot loop over entities would.
+ * Accessors live in {@code static final} fields, which is how both helpers are meant to be used.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@OperationsPerInvocation(ReflectionHelperBenchmark.SIZE)
+public class ReflectionHelperBenchmark {
+
+    static final int SIZE = 1024;
+
+    private static final Function<Target, Integer> HANDLE_GETTER = ReflectionHelper.getter(Target.class, "value", int.class, MethodHandles.lookup());
+    private static final BiConsumer<Target, Integer> HANDLE_SETTER = ReflectionHelper.setter(Target.class, "value", int.class, MethodHandles.lookup());
+    private static final Function<Target, Integer> COMPILED_GETTER = CompiledReflectionHelper.getter(Target.class, "value", int.class, MethodHandles.lookup());
+    private static final BiConsumer<Target, Integer> COMPILED_SETTER = CompiledReflectionHelper.setter(Target.class, "value", int.class, MethodHandles.lookup());
+    private static final ToIntFunction<Target> COMPILED_INT_GETTER = CompiledReflectionHelper.intGetter(Target.class, "value", MethodHandles.lookup());
+    private static final ObjIntConsumer<Target> COMPILED_INT_SETTER = CompiledReflectionHelper.intSetter(Target.class, "value", MethodHandles.lookup());
+
+    private final Target[] targets = new Target[SIZE];
+
+    @Setup
+    public void setup() {
+        for (int i = 0; i < SIZE; i++) {
+            this.targets[i] = new Target(i);
+        }
+    }
+
+    @Benchmark
+    public long directGet() {
+        long sum = 0;
+        for (Target target : this.targets) {
+            sum += target.value;
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long handleGet() {
+        long sum = 0;
+        for (Target target : this.targets) {
+            sum += HANDLE_GETTER.apply(target);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long compiledGet() {
+        long sum = 0;
+        for (Target target : this.targets) {
+            sum += COMPILED_GETTER.apply(target);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long compiledIntGet() {
+        long sum = 0;
+        for (Target target : this.targets) {
+            sum += COMPILED_INT_GETTER.applyAsInt(target);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public void directSet() {
+        for (Target target : this.targets) {
+            target.value++;
+        }
+    }
+
+    @Benchmark
+    public void handleSet() {
+        for (Target target : this.targets) {
+            HANDLE_SETTER.accept(target, HANDLE_GETTER.apply(target) + 1);
+        }
+    }
+
+    @Benchmark
+    public void compiledSet() {
+        for (Target target : this.targets) {
+            COMPILED_SETTER.accept(target, COMPILED_GETTER.apply(target) + 1);
+        }
+    }
+
+    @Benchmark
+    public void compiledIntSet() {
+        for (Target target : this.targets) {
+            COMPILED_INT_SETTER.accept(target, COMPILED_INT_GETTER.applyAsInt(target) + 1);
+        }
+    }
+
+    public static class Target {
+
+        private int value;
+
+        Target(int value) {
+            this.value = value;
+        }
+    }
+}
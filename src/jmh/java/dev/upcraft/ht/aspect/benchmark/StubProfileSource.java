@@ -0,0 +1,59 @@
+package dev.upcraft.ht.aspect.benchmark;
+
+import dev.upcraft.ht.aspect.api.auth.PlayerGameProfile;
+import dev.upcraft.ht.aspect.util.cache.ProfileSource;
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Local stand-in for the profile service that answers after a fixed latency and fails a configurable share of requests.
+ */
+public class StubProfileSource implements ProfileSource {
+
+    private final long latencyMillis;
+    private final double errorRate;
+    private final AtomicLong requests = new AtomicLong();
+
+    public StubProfileSource(long latencyMillis, double errorRate) {
+        this.latencyMillis = latencyMillis;
+        this.errorRate = errorRate;
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return true;
+    }
+
+    @Override
+    public CompletableFuture<@Nullable PlayerGameProfile> lookupById(UUID id) {
+        return this.respond(() -> new PlayerGameProfile(id, "player_" + Long.toHexString(id.getLeastSignificantBits() & 0xFFFFFFL)));
+    }
+
+    @Override
+    public CompletableFuture<@Nullable PlayerGameProfile> lookupByUsername(String name) {
+        return this.respond(() -> new PlayerGameProfile(UUID.nameUUIDFromBytes(name.getBytes()), name));
+    }
+
+    private CompletableFuture<@Nullable PlayerGameProfile> respond(Supplier<PlayerGameProfile> profile) {
+        this.requests.incrementAndGet();
+        var failed = ThreadLocalRandom.current().nextDouble() < this.errorRate;
+        var delayed = CompletableFuture.delayedExecutor(this.latencyMillis, TimeUnit.MILLISECONDS);
+        return CompletableFuture.supplyAsync(() -> {
+            if (failed) {
+                throw new IllegalStateException(new IOException("Injected profile service failure"));
+            }
+            return profile.get();
+        }, delayed);
+    }
+
+    public long getRequests() {
+        return this.requests.get();
+    }
+}
@@ -0,0 +1,54 @@
+package dev.upcraft.ht.aspect.api;
+
+import org.jspecify.annotations.Nullable;
+
+import java.lang.invoke.MethodHandles;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Accessors created by the reflection helpers, keyed by (owner class, field, type) and the caller's lookup.
+ * <p>
+ * Keyed through {@link ClassValue}s on the owner and then the lookup class, so the accessors are stored with the lookup
+ * class and go away once it is unloaded. Until then each accessor holds a handle to the owner's field, which keeps the
+ * owner (and the field type) and their class loaders reachable for as long as the caller is. That is intended for a
+ * plugin reaching into server classes, but a long-lived caller reaching into a short-lived loader pins that loader.
+ * The lookup modes are part of the key, a caller never gets an accessor that was created with more access than it has
+ * itself.
+ */
+final class AccessorCache {
+
+    private static final ClassValue<ClassValue<ConcurrentMap<Key, Object>>> CACHE = new ClassValue<>() {
+        @Override
+        protected ClassValue<ConcurrentMap<Key, Object>> computeValue(Class<?> owner) {
+            return new ClassValue<>() {
+                @Override
+                protected ConcurrentMap<Key, Object> computeValue(Class<?> caller) {
+                    return new ConcurrentHashMap<>();
+                }
+            };
+        }
+    };
+
+    private AccessorCache() {
+    }
+
+    @SuppressWarnings("unchecked")
+    static <A> A get(Class<?> owner, String kind, String fieldName, @Nullable Class<?> fieldType, MethodHandles.Lookup callerContext, Supplier<A> factory) {
+        var accessors = CACHE.get(owner).get(callerContext.lookupClass());
+        var key = new Key(kind, fieldName, fieldType, callerContext.lookupModes());
+        var cached = accessors.get(key);
+        if (cached != null) {
+            return (A) cached;
+        }
+
+        // not computeIfAbsent, factories may create other cached accessors for the same owner
+        var created = factory.get();
+        var existing = accessors.putIfAbsent(key, created);
+        return existing != null ? (A) existing : created;
+    }
+
+    private record Key(String kind, String fieldName, @Nullable Class<?> fieldType, int lookupModes) {
+    }
+}
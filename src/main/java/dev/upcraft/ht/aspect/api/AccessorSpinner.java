@@ -0,0 +1,60 @@
+package dev.upcraft.ht.aspect.api;
+
+import java.lang.classfile.ClassFile;
+import java.lang.classfile.TypeKind;
+import java.lang.constant.ClassDesc;
+import java.lang.constant.ConstantDescs;
+import java.lang.constant.DynamicConstantDesc;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Spins a hidden class implementing a single-method functional interface by calling a {@link MethodHandle} that is
+ * loaded as a class constant ({@code ldc} of a dynamic constant backed by {@link MethodHandles#classData}).
+ * <p>
+ * Unlike a handle captured by a lambda, the JIT treats that constant as foldable, so a field getter or setter handle
+ * inlines down to a plain field access. The handle does its own access checks, so this works for private fields
+ * and across modules without the generated class needing access to the owner.
+ */
+final class AccessorSpinner {
+
+    private static final ClassDesc ACCESSOR = ClassDesc.of(AccessorSpinner.class.getName() + "$Accessor");
+    private static final DynamicConstantDesc<MethodHandle> HANDLE = DynamicConstantDesc.ofNamed(ConstantDescs.BSM_CLASS_DATA, ConstantDescs.DEFAULT_NAME, ConstantDescs.CD_MethodHandle);
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private AccessorSpinner() {
+    }
+
+    /**
+     * @param type the erased type of {@code methodName}, the handle is adapted to it
+     */
+    static <F> F spin(Class<F> functionalInterface, String methodName, MethodType type, MethodHandle handle) {
+        try {
+            var hiddenClass = LOOKUP.defineHiddenClassWithClassData(generate(functionalInterface, methodName, type), handle.asType(type), true).lookupClass();
+            return functionalInterface.cast(LOOKUP.findConstructor(hiddenClass, MethodType.methodType(void.class)).invoke());
+        } catch (Throwable e) {
+            throw new IllegalStateException("Unable to generate accessor for %s".formatted(functionalInterface.getName()), e);
+        }
+    }
+
+    private static byte[] generate(Class<?> functionalInterface, String methodName, MethodType type) {
+        var descriptor = type.describeConstable().orElseThrow();
+        return ClassFile.of().build(ACCESSOR, cls -> cls
+                .withFlags(ClassFile.ACC_PUBLIC | ClassFile.ACC_FINAL | ClassFile.ACC_SUPER | ClassFile.ACC_SYNTHETIC)
+                .withSuperclass(ConstantDescs.CD_Object)
+                .withInterfaceSymbols(functionalInterface.describeConstable().orElseThrow())
+                .withMethodBody(ConstantDescs.INIT_NAME, ConstantDescs.MTD_void, ClassFile.ACC_PUBLIC, code -> code
+                        .aload(0)
+                        .invokespecial(ConstantDescs.CD_Object, ConstantDescs.INIT_NAME, ConstantDescs.MTD_void)
+                        .return_())
+                .withMethodBody(methodName, descriptor, ClassFile.ACC_PUBLIC | ClassFile.ACC_FINAL, code -> {
+                    code.ldc(HANDLE);
+                    for (int i = 0; i < descriptor.parameterCount(); i++) {
+                        code.loadLocal(TypeKind.from(descriptor.parameterType(i)), code.parameterSlot(i));
+                    }
+                    code.invokevirtual(ConstantDescs.CD_MethodHandle, "invokeExact", descriptor);
+                    code.return_(TypeKind.from(descriptor.returnType()));
+                }));
+    }
+}
@@ -1,12 +1,127 @@
 package dev.upcraft.ht.aspect.api;
 
+import com.hypixel.hytale.logger.HytaleLogger;
 import com.hypixel.hytale.server.core.plugin.JavaPlugin;
 import com.hypixel.hytale.server.core.plugin.JavaPluginInit;
+import dev.upcraft.ht.aspect.util.Services;
 import org.jspecify.annotations.NonNull;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+/**
+ * Base class for plugins using Aspect, adds a phased asynchronous lifecycle on top of {@link JavaPlugin}.
+ * <p>
+ * Subclasses register {@link LifecycleTask}s and call {@code super.setup()} / {@code super.start()} at the end of their
+ * own overrides, which starts all tasks of that phase in parallel, respecting their dependencies. Neither call waits for
+ * the tasks; use {@link #getPhase(LifecyclePhase)} to wait for or chain on a phase.
+ */
 public class AspectPlugin extends JavaPlugin {
 
+    private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
+    private final Map<LifecyclePhase, List<LifecycleTask>> tasks = new EnumMap<>(LifecyclePhase.class);
+    private final Map<LifecyclePhase, CompletableFuture<Void>> phases = new EnumMap<>(LifecyclePhase.class);
+    private final Set<LifecyclePhase> startedPhases = EnumSet.noneOf(LifecyclePhase.class);
+    private final ExecutorService lifecycleExecutor;
+
     public AspectPlugin(@NonNull JavaPluginInit init) {
         super(init);
+        for (LifecyclePhase phase : LifecyclePhase.values()) {
+            this.tasks.put(phase, new ArrayList<>());
+            this.phases.put(phase, new CompletableFuture<>());
+        }
+        this.lifecycleExecutor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(this.getClass().getSimpleName() + " Lifecycle-", 0).factory());
+    }
+
+    /**
+     * @param dependencies tasks that must complete first, they may belong to an earlier phase
+     * @throws IllegalStateException if the phase already started
+     */
+    protected synchronized LifecycleTask registerTask(LifecyclePhase phase, String name, LifecycleTask.Action action, LifecycleTask... dependencies) {
+        if (this.startedPhases.contains(phase)) {
+            throw new IllegalStateException("Unable to register task %s, phase %s already started".formatted(name, phase));
+        }
+        for (LifecycleTask dependency : dependencies) {
+            if (dependency.phase().compareTo(phase) > 0) {
+                throw new IllegalArgumentException("Task %s in phase %s can not depend on %s from a later phase".formatted(name, phase, dependency));
+            }
+        }
+
+        var task = new LifecycleTask(name, phase, action, List.of(dependencies));
+        this.tasks.get(phase).add(task);
+        return task;
+    }
+
+    /**
+     * @return a future completing once every task of the phase finished, exceptionally if any of them failed
+     */
+    public CompletableFuture<Void> getPhase(LifecyclePhase phase) {
+        return this.phases.get(phase);
+    }
+
+    @Override
+    protected void setup() {
+        // this plugin's service providers are visible from now on
+        Services.invalidate();
+        this.runPhase(LifecyclePhase.SETUP);
+    }
+
+    @Override
+    protected void start() {
+        this.runPhase(LifecyclePhase.START);
+    }
+
+    @Override
+    protected void shutdown() {
+        this.lifecycleExecutor.shutdownNow();
+        Services.invalidate();
+    }
+
+    private synchronized void runPhase(LifecyclePhase phase) {
+        if (!this.startedPhases.add(phase)) {
+            return;
+        }
+        var phaseTasks = List.copyOf(this.tasks.get(phase));
+
+        var start = System.nanoTime();
+        for (LifecycleTask task : phaseTasks) {
+            var dependencies = task.dependencies().stream().map(LifecycleTask::future).toArray(CompletableFuture[]::new);
+            CompletableFuture.allOf(dependencies).thenRunAsync(() -> {
+                try {
+                    task.run();
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+            }, this.lifecycleExecutor).whenComplete((unused, error) -> {
+                if (error != null) {
+                    LOGGER.atSevere().withCause(error).log("%s: lifecycle task %s failed", this.getName(), task);
+                }
+                task.complete(error);
+            });
+        }
+
+        var phaseFuture = this.phases.get(phase);
+        CompletableFuture.allOf(phaseTasks.stream().map(LifecycleTask::future).toArray(CompletableFuture[]::new)).whenComplete((unused, error) -> {
+            var elapsed = Duration.ofNanos(System.nanoTime() - start);
+            var breakdown = phaseTasks.stream()
+                    .map(task -> "%s=%s".formatted(task.name(), task.duration() != null ? task.duration().toMillis() + "ms" : "skipped"))
+                    .collect(Collectors.joining(", "));
+            LOGGER.atInfo().log("%s: phase %s finished in %s ms [%s]", this.getName(), phase, elapsed.toMillis(), breakdown);
+            if (error != null) {
+                phaseFuture.completeExceptionally(error);
+            } else {
+                phaseFuture.complete(null);
+            }
+        });
     }
 }
@@ -0,0 +1,203 @@
+package dev.upcraft.ht.aspect.api;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.function.*;
+
+/**
+ * Same accessors as {@link ReflectionHelper}, but each one is a generated hidden class that loads its field handle as a
+ * constant, so the JIT compiles a call down to a direct field access instead of an opaque {@code invokeExact}.
+ * <p>
+ * Generating an accessor costs a class definition, accessors are cached per field and caller so repeated calls return
+ * the same instance. Keep them in {@code static final} fields for the JIT to inline them.
+ * The primitive variants avoid boxing and only accept fields of exactly that type.
+ */
+public class CompiledReflectionHelper {
+
+    public static <T> Supplier<T> staticGetter(Class<?> ownerClass, String fieldName, Class<T> fieldType) {
+        return staticGetter(ownerClass, fieldName, fieldType, MethodHandles.lookup());
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> Supplier<T> staticGetter(Class<?> clazz, String fieldName, Class<T> fieldType, MethodHandles.Lookup callerContext) {
+        return AccessorCache.get(clazz, "compiled.staticGetter", fieldName, fieldType, callerContext,
+                () -> (Supplier<T>) AccessorSpinner.spin(Supplier.class, "get", MethodType.methodType(Object.class), findStaticGetter(clazz, fieldName, fieldType, callerContext)));
+    }
+
+    public static <P, T> Function<P, T> getter(Class<P> ownerClass, String fieldName, Class<T> fieldType) {
+        return getter(ownerClass, fieldName, fieldType, MethodHandles.lookup());
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <P, T> Function<P, T> getter(Class<P> clazz, String fieldName, Class<T> fieldType, MethodHandles.Lookup callerContext) {
+        return AccessorCache.get(clazz, "compiled.getter", fieldName, fieldType, callerContext,
+                () -> (Function<P, T>) AccessorSpinner.spin(Function.class, "apply", MethodType.methodType(Object.class, Object.class), findGetter(clazz, fieldName, fieldType, callerContext)));
+    }
+
+    public static <T> Consumer<T> staticSetter(Class<?> ownerClass, String fieldName, Class<T> fieldType) {
+        return staticSetter(ownerClass, fieldName, fieldType, MethodHandles.lookup());
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> Consumer<T> staticSetter(Class<?> clazz, String fieldName, Class<T> fieldType, MethodHandles.Lookup callerContext) {
+        return AccessorCache.get(clazz, "compiled.staticSetter", fieldName, fieldType, callerContext,
+                () -> (Consumer<T>) AccessorSpinner.spin(Consumer.class, "accept", MethodType.methodType(void.class, Object.class), findStaticSetter(clazz, fieldName, fieldType, callerContext)));
+    }
+
+    public static <P, T> BiConsumer<P, T> setter(Class<P> ownerClass, String fieldName, Class<T> fieldType) {
+        return setter(ownerClass, fieldName, fieldType, MethodHandles.lookup());
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <P, T> BiConsumer<P, T> setter(Class<P> clazz, String fieldName, Class<T> fieldType, MethodHandles.Lookup callerContext) {
+        return AccessorCache.get(clazz, "compiled.setter", fieldName, fieldType, callerContext,
+                () -> (BiConsumer<P, T>) AccessorSpinner.spin(BiConsumer.class, "accept", MethodType.methodType(void.class, Object.class, Object.class), findSetter(clazz, fieldName, fieldType, callerContext)));
+    }
+
+    public static IntSupplier staticIntGetter(Class<?> ownerClass, String fieldName) {
+        return staticIntGetter(ownerClass, fieldName, MethodHandles.lookup());
+    }
+
+    public static IntSupplier staticIntGetter(Class<?> clazz, String fieldName, MethodHandles.Lookup callerContext) {
+        return AccessorCache.get(clazz, "compiled.staticIntGetter", fieldName, int.class, callerContext,
+                () -> AccessorSpinner.spin(IntSupplier.class, "getAsInt", MethodType.methodType(int.class), findStaticGetter(clazz, fieldName, int.class, callerContext)));
+    }
+
+    public static <P> ToIntFunction<P> intGetter(Class<P> ownerClass, String fieldName) {
+        return intGetter(ownerClass, fieldName, MethodHandles.lookup());
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <P> ToIntFunction<P> intGetter(Class<P> clazz, String fieldName, MethodHandles.Lookup callerContext) {
+        return AccessorCache.get(clazz, "compiled.intGetter", fieldName, int.class, callerContext,
+                () -> (ToIntFunction<P>) AccessorSpinner.spin(ToIntFunction.class, "applyAsInt", MethodType.methodType(int.class, Object.class), findGetter(clazz, fieldName, int.class, callerContext)));
+    }
+
+    public static IntConsumer staticIntSetter(Class<?> ownerClass, String fieldName) {
+        return staticIntSetter(ownerClass, fieldName, MethodHandles.lookup());
+    }
+
+    public static IntConsumer staticIntSetter(Class<?> clazz, String fieldName, MethodHandles.Lookup callerContext) {
+        return AccessorCache.get(clazz, "compiled.staticIntSetter", fieldName, int.class, callerContext,
+                () -> AccessorSpinner.spin(IntConsumer.class, "accept", MethodType.methodType(void.class, int.class), findStaticSetter(clazz, fieldName, int.class, callerContext)));
+    }
+
+    public static <P> ObjIntConsumer<P> intSetter(Class<P> ownerClass, String fieldName) {
+        return intSetter(ownerClass, fieldName, MethodHandles.lookup());
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <P> ObjIntConsumer<P> intSetter(Class<P> clazz, String fieldName, MethodHandles.Lookup callerContext) {
+        return AccessorCache.get(clazz, "compiled.intSetter", fieldName, int.class, callerContext,
+                () -> (ObjIntConsumer<P>) AccessorSpinner.spin(ObjIntConsumer.class, "accept", MethodType.methodType(void.class, Object.class, int.class), findSetter(clazz, fieldName, int.class, callerContext)));
+    }
+
+    public static LongSupplier staticLongGetter(Class<?> ownerClass, String fieldName) {
+        return staticLongGetter(ownerClass, fieldName, MethodHandles.lookup());
+    }
+
+    public static LongSupplier staticLongGetter(Class<?> clazz, String fieldName, MethodHandles.Lookup callerContext) {
+        return AccessorCache.get(clazz, "compiled.staticLongGetter", fieldName, long.class, callerContext,
+                () -> AccessorSpinner.spin(LongSupplier.class, "getAsLong", MethodType.methodType(long.class), findStaticGetter(clazz, fieldName, long.class, callerContext)));
+    }
+
+    public static <P> ToLongFunction<P> longGetter(Class<P> ownerClass, String fieldName) {
+        return longGetter(ownerClass, fieldName, MethodHandles.lookup());
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <P> ToLongFunction<P> longGetter(Class<P> clazz, String fieldName, MethodHandles.Lookup callerContext) {
+        return AccessorCache.get(clazz, "compiled.longGetter", fieldName, long.class, callerContext,
+                () -> (ToLongFunction<P>) AccessorSpinner.spin(ToLongFunction.class, "applyAsLong", MethodType.methodType(long.class, Object.class), findGetter(clazz, fieldName, long.class, callerContext)));
+    }
+
+    public static LongConsumer staticLongSetter(Class<?> ownerClass, String fieldName) {
+        return staticLongSetter(ownerClass, fieldName, MethodHandles.lookup());
+    }
+
+    public static LongConsumer staticLongSetter(Class<?> clazz, String fieldName, MethodHandles.Lookup callerContext) {
+        return AccessorCache.get(clazz, "compiled.staticLongSetter", fieldName, long.class, callerContext,
+                () -> AccessorSpinner.spin(LongConsumer.class, "accept", MethodType.methodType(void.class, long.class), findStaticSetter(clazz, fieldName, long.class, callerContext)));
+    }
+
+    public static <P> ObjLongConsumer<P> longSetter(Class<P> ownerClass, String fieldName) {
+        return longSetter(ownerClass, fieldName, MethodHandles.lookup());
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <P> ObjLongConsumer<P> longSetter(Class<P> clazz, String fieldName, MethodHandles.Lookup callerContext) {
+        return AccessorCache.get(clazz, "compiled.longSetter", fieldName, long.class, callerContext,
+                () -> (ObjLongConsumer<P>) AccessorSpinner.spin(ObjLongConsumer.class, "accept", MethodType.methodType(void.class, Object.class, long.class), findSetter(clazz, fieldName, long.class, callerContext)));
+    }
+
+    public static DoubleSupplier staticDoubleGetter(Class<?> ownerClass, String fieldName) {
+        return staticDoubleGetter(ownerClass, fieldName, MethodHandles.lookup());
+    }
+
+    public static DoubleSupplier staticDoubleGetter(Class<?> clazz, String fieldName, MethodHandles.Lookup callerContext) {
+        return AccessorCache.get(clazz, "compiled.staticDoubleGetter", fieldName, double.class, callerContext,
+                () -> AccessorSpinner.spin(DoubleSupplier.class, "getAsDouble", MethodType.methodType(double.class), findStaticGetter(clazz, fieldName, double.class, callerContext)));
+    }
+
+    public static <P> ToDoubleFunction<P> doubleGetter(Class<P> ownerClass, String fieldName) {
+        return doubleGetter(ownerClass, fieldName, MethodHandles.lookup());
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <P> ToDoubleFunction<P> doubleGetter(Class<P> clazz, String fieldName, MethodHandles.Lookup callerContext) {
+        return AccessorCache.get(clazz, "compiled.doubleGetter", fieldName, double.class, callerContext,
+                () -> (ToDoubleFunction<P>) AccessorSpinner.spin(ToDoubleFunction.class, "applyAsDouble", MethodType.methodType(double.class, Object.class), findGetter(clazz, fieldName, double.class, callerContext)));
+    }
+
+    public static DoubleConsumer staticDoubleSetter(Class<?> ownerClass, String fieldName) {
+        return staticDoubleSetter(ownerClass, fieldName, MethodHandles.lookup());
+    }
+
+    public static DoubleConsumer staticDoubleSetter(Class<?> clazz, String fieldName, MethodHandles.Lookup callerContext) {
+        return AccessorCache.get(clazz, "compiled.staticDoubleSetter", fieldName, double.class, callerContext,
+                () -> AccessorSpinner.spin(DoubleConsumer.class, "accept", MethodType.methodType(void.class, double.class), findStaticSetter(clazz, fieldName, double.class, callerContext)));
+    }
+
+    public static <P> ObjDoubleConsumer<P> doubleSetter(Class<P> ownerClass, String fieldName) {
+        return doubleSetter(ownerClass, fieldName, MethodHandles.lookup());
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <P> ObjDoubleConsumer<P> doubleSetter(Class<P> clazz, String fieldName, MethodHandles.Lookup callerContext) {
+        return AccessorCache.get(clazz, "compiled.doubleSetter", fieldName, double.class, callerContext,
+                () -> (ObjDoubleConsumer<P>) AccessorSpinner.spin(ObjDoubleConsumer.class, "accept", MethodType.methodType(void.class, Object.class, double.class), findSetter(clazz, fieldName, double.class, callerContext)));
+    }
+
+    private static MethodHandle findStaticGetter(Class<?> clazz, String fieldName, Class<?> fieldType, MethodHandles.Lookup callerContext) {
+        try {
+            return MethodHandles.privateLookupIn(clazz, callerContext).findStaticGetter(clazz, fieldName, fieldType);
+        } catch (NoSuchFieldException | IllegalAccessException e) {
+            throw new RuntimeException("Unable to look up static field %s for class %s".formatted(fieldName, clazz.getName()), e);
+        }
+    }
+
+    private static MethodHandle findGetter(Class<?> clazz, String fieldName, Class<?> fieldType, MethodHandles.Lookup callerContext) {
+        try {
+            return MethodHandles.privateLookupIn(clazz, callerContext).findGetter(clazz, fieldName, fieldType);
+        } catch (NoSuchFieldException | IllegalAccessException e) {
+            throw new RuntimeException("Unable to look up field %s for class %s".formatted(fieldName, clazz.getName()), e);
+        }
+    }
+
+    private static MethodHandle findStaticSetter(Class<?> clazz, String fieldName, Class<?> fieldType, MethodHandles.Lookup callerContext) {
+        try {
+            return MethodHandles.privateLookupIn(clazz, callerContext).findStaticSetter(clazz, fieldName, fieldType);
+        } catch (NoSuchFieldException | IllegalAccessException e) {
+            throw new RuntimeException("Unable to look up static field %s for class %s".formatted(fieldName, clazz.getName()), e);
+        }
+    }
+
+    private static MethodHandle findSetter(Class<?> clazz, String fieldName, Class<?> fieldType, MethodHandles.Lookup callerContext) {
+        try {
+            return MethodHandles.privateLookupIn(clazz, callerContext).findSetter(clazz, fieldName, fieldType);
+        } catch (NoSuchFieldException | IllegalAccessException e) {
+            throw new RuntimeException("Unable to look up field %s for class %s".formatted(fieldName, clazz.getName()), e);
+        }
+    }
+}
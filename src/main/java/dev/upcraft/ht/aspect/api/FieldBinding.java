@@ -0,0 +1,117 @@
+package dev.upcraft.ht.aspect.api;
+
+import org.jspecify.annotations.Nullable;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Accessors for every instance field declared by a class, so a whole object can be snapshotted, restored or copied
+ * in a single call. Final fields are included in snapshots but skipped when writing.
+ *
+ * @see ReflectionHelper#bindFields(Class, MethodHandles.Lookup)
+ */
+public final class FieldBinding<T> {
+
+    private final Class<T> type;
+    private final List<String> names;
+    private final MethodHandle[] getters;
+    private final @Nullable MethodHandle[] setters;
+
+    private FieldBinding(Class<T> type, List<String> names, MethodHandle[] getters, @Nullable MethodHandle[] setters) {
+        this.type = type;
+        this.names = names;
+        this.getters = getters;
+        this.setters = setters;
+    }
+
+    static <T> FieldBinding<T> create(Class<T> clazz, MethodHandles.Lookup callerContext) {
+        try {
+            var lookup = MethodHandles.privateLookupIn(clazz, callerContext);
+            var names = new ArrayList<String>();
+            var getters = new ArrayList<MethodHandle>();
+            var setters = new ArrayList<@Nullable MethodHandle>();
+            for (Field field : clazz.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers())) {
+                    continue;
+                }
+                names.add(field.getName());
+                getters.add(lookup.findGetter(clazz, field.getName(), field.getType()).asType(MethodType.methodType(Object.class, Object.class)));
+                setters.add(Modifier.isFinal(field.getModifiers()) ? null : lookup.findSetter(clazz, field.getName(), field.getType()).asType(MethodType.methodType(void.class, Object.class, Object.class)));
+            }
+            return new FieldBinding<>(clazz, List.copyOf(names), getters.toArray(MethodHandle[]::new), setters.toArray(MethodHandle[]::new));
+        } catch (NoSuchFieldException | IllegalAccessException e) {
+            throw new RuntimeException("Unable to bind fields of class %s".formatted(clazz.getName()), e);
+        }
+    }
+
+    public Class<T> type() {
+        return this.type;
+    }
+
+    /**
+     * @return the bound field names, in the order used by {@link #snapshot(Object)} and {@link #restore(Object, Object[])}
+     */
+    public List<String> names() {
+        return this.names;
+    }
+
+    public @Nullable Object get(T instance, int index) {
+        try {
+            return (Object) this.getters[index].invokeExact((Object) instance);
+        } catch (Throwable e) {
+            throw new RuntimeException("Reflection error: Unable to get field %s#%s".formatted(this.type.getName(), this.names.get(index)), e);
+        }
+    }
+
+    public @Nullable Object[] snapshot(T instance) {
+        var values = new @Nullable Object[this.getters.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = this.get(instance, i);
+        }
+        return values;
+    }
+
+    /**
+     * Writes all non-final fields from a {@link #snapshot(Object)}.
+     */
+    public void restore(T instance, @Nullable Object[] values) {
+        if (values.length != this.setters.length) {
+            throw new IllegalArgumentException("Expected %s values for %s but got %s".formatted(this.setters.length, this.type.getName(), values.length));
+        }
+        for (int i = 0; i < values.length; i++) {
+            this.set(instance, i, values[i]);
+        }
+    }
+
+    /**
+     * Copies all non-final fields from one instance to another.
+     */
+    public void copy(T from, T to) {
+        for (int i = 0; i < this.getters.length; i++) {
+            this.set(to, i, this.get(from, i));
+        }
+    }
+
+    private void set(T instance, int index, @Nullable Object value) {
+        var setter = this.setters[index];
+        if (setter == null) {
+            return;
+        }
+        try {
+            setter.invokeExact((Object) instance, value);
+        } catch (Throwable e) {
+            throw new RuntimeException("Reflection error: Unable to set field %s#%s".formatted(this.type.getName(), this.names.get(index)), e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "FieldBinding[type=%s, fields=%s]".formatted(this.type.getName(), this.names);
+    }
+}
@@ -0,0 +1,15 @@
+package dev.upcraft.ht.aspect.api;
+
+/**
+ * Plugin lifecycle phases that {@link LifecycleTask}s can be registered for, in the order they run.
+ */
+public enum LifecyclePhase {
+    /**
+     * Tasks are started at the end of {@code setup()}.
+     */
+    SETUP,
+    /**
+     * Tasks are started at the end of {@code start()}.
+     */
+    START
+}
@@ -0,0 +1,84 @@
+package dev.upcraft.ht.aspect.api;
+
+import org.jspecify.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Asynchronous unit of plugin startup work, see {@link AspectPlugin#registerTask}.
+ * <p>
+ * A task starts once all of its dependencies completed successfully and fails without running if any of them failed.
+ */
+public final class LifecycleTask {
+
+    private final String name;
+    private final LifecyclePhase phase;
+    private final Action action;
+    private final List<LifecycleTask> dependencies;
+    private final CompletableFuture<Void> future = new CompletableFuture<>();
+    private volatile long durationNanos = -1;
+
+    LifecycleTask(String name, LifecyclePhase phase, Action action, List<LifecycleTask> dependencies) {
+        this.name = name;
+        this.phase = phase;
+        this.action = action;
+        this.dependencies = dependencies;
+    }
+
+    public String name() {
+        return this.name;
+    }
+
+    public LifecyclePhase phase() {
+        return this.phase;
+    }
+
+    public List<LifecycleTask> dependencies() {
+        return this.dependencies;
+    }
+
+    /**
+     * @return a future completing once the task ran, completing it does not affect the task
+     */
+    public CompletableFuture<Void> future() {
+        return this.future.copy();
+    }
+
+    /**
+     * @return how long the action took to run, or {@code null} if it has not finished
+     */
+    public @Nullable Duration duration() {
+        var nanos = this.durationNanos;
+        return nanos < 0 ? null : Duration.ofNanos(nanos);
+    }
+
+    void run() throws Exception {
+        var start = System.nanoTime();
+        try {
+            this.action.run();
+        } finally {
+            this.durationNanos = System.nanoTime() - start;
+        }
+    }
+
+    void complete(@Nullable Throwable error) {
+        if (error != null) {
+            this.future.completeExceptionally(error);
+        } else {
+            this.future.complete(null);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "LifecycleTask[" + this.phase + "/" + this.name + "]";
+    }
+
+    @FunctionalInterface
+    public interface Action {
+
+        void run() throws Exception;
+    }
+}
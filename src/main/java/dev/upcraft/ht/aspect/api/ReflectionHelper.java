@@ -14,8 +14,12 @@ public class ReflectionHelper {
         return staticGetter(ownerClass, fieldName, fieldType, MethodHandles.lookup());
     }
 
-    @SuppressWarnings("unchecked")
     public static <T> Supplier<T> staticGetter(Class<?> clazz, String fieldName, Class<T> fieldType, MethodHandles.Lookup callerContext) {
+        return AccessorCache.get(clazz, "staticGetter", fieldName, fieldType, callerContext, () -> createStaticGetter(clazz, fieldName, fieldType, callerContext));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Supplier<T> createStaticGetter(Class<?> clazz, String fieldName, Class<T> fieldType, MethodHandles.Lookup callerContext) {
         try {
             MethodHandle getter = MethodHandles.privateLookupIn(clazz, callerContext).findStaticGetter(clazz, fieldName, fieldType)
                     .asType(MethodType.methodType(Object.class));
@@ -36,8 +40,12 @@ public class ReflectionHelper {
         return getter(ownerClass, fieldName, fieldType, MethodHandles.lookup());
     }
 
-    @SuppressWarnings("unchecked")
     public static <P, T> Function<P, T> getter(Class<P> clazz, String fieldName, Class<T> fieldType, MethodHandles.Lookup callerContext) {
+        return AccessorCache.get(clazz, "getter", fieldName, fieldType, callerContext, () -> createGetter(clazz, fieldName, fieldType, callerContext));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <P, T> Function<P, T> createGetter(Class<P> clazz, String fieldName, Class<T> fieldType, MethodHandles.Lookup callerContext) {
         try {
             MethodHandle getter = MethodHandles.privateLookupIn(clazz, callerContext).findGetter(clazz, fieldName, fieldType)
                     .asType(MethodType.methodType(Object.class, Object.class));
@@ -60,6 +68,10 @@ public class ReflectionHelper {
     }
 
     public static <T> Consumer<T> staticSetter(Class<?> clazz, String fieldName, Class<T> fieldType, MethodHandles.Lookup callerContext) {
+        return AccessorCache.get(clazz, "staticSetter", fieldName, fieldType, callerContext, () -> createStaticSetter(clazz, fieldName, fieldType, callerContext));
+    }
+
+    private static <T> Consumer<T> createStaticSetter(Class<?> clazz, String fieldName, Class<T> fieldType, MethodHandles.Lookup callerContext) {
         try {
             MethodHandle setter = MethodHandles.privateLookupIn(clazz, callerContext).findStaticSetter(clazz, fieldName, fieldType)
                     .asType(MethodType.methodType(void.class, Object.class));
@@ -81,6 +93,10 @@ public class ReflectionHelper {
     }
 
     public static <P, T> BiConsumer<P, T> setter(Class<P> clazz, String fieldName, Class<T> fieldType, MethodHandles.Lookup callerContext) {
+        return AccessorCache.get(clazz, "setter", fieldName, fieldType, callerContext, () -> createSetter(clazz, fieldName, fieldType, callerContext));
+    }
+
+    private static <P, T> BiConsumer<P, T> createSetter(Class<P> clazz, String fieldName, Class<T> fieldType, MethodHandles.Lookup callerContext) {
         try {
             MethodHandle setter = MethodHandles.privateLookupIn(clazz, callerContext).findSetter(clazz, fieldName, fieldType)
                     .asType(MethodType.methodType(void.class, Object.class, Object.class));
@@ -96,4 +112,15 @@ public class ReflectionHelper {
             throw new RuntimeException("Unable to look up field %s for class %s".formatted(fieldName, clazz.getName()), e);
         }
     }
+
+    public static <T> FieldBinding<T> bindFields(Class<T> clazz) {
+        return bindFields(clazz, MethodHandles.lookup());
+    }
+
+    /**
+     * Binds every instance field declared by the class at once, see {@link FieldBinding}.
+     */
+    public static <T> FieldBinding<T> bindFields(Class<T> clazz, MethodHandles.Lookup callerContext) {
+        return AccessorCache.get(clazz, "bindFields", "*", null, callerContext, () -> FieldBinding.create(clazz, callerContext));
+    }
 }
@@ -1,41 +1,91 @@
 package dev.upcraft.ht.aspect.main;
 
 import com.hypixel.hytale.logger.HytaleLogger;
-import com.hypixel.hytale.server.core.plugin.JavaPlugin;
+import com.hypixel.hytale.server.core.event.events.player.PlayerDisconnectEvent;
 import com.hypixel.hytale.server.core.plugin.JavaPluginInit;
+import dev.upcraft.ht.aspect.api.AspectPlugin;
+import dev.upcraft.ht.aspect.api.LifecyclePhase;
+import dev.upcraft.ht.aspect.util.AspectScheduler;
+import dev.upcraft.ht.aspect.util.Env;
 import dev.upcraft.ht.aspect.util.PlayerCache;
+import dev.upcraft.ht.aspect.util.PlayerHelper;
+import dev.upcraft.ht.aspect.util.config.AspectConfig;
+import dev.upcraft.ht.aspect.util.metrics.JfrMetricExporter;
+import dev.upcraft.ht.aspect.util.metrics.LogMetricExporter;
+import dev.upcraft.ht.aspect.util.metrics.MetricExporter;
+import dev.upcraft.ht.aspect.util.metrics.Metrics;
 
-public class PluginMain extends JavaPlugin {
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+public class PluginMain extends AspectPlugin {
 
     private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
     private static PluginMain instance;
+    private final AspectScheduler scheduler = new AspectScheduler("Aspect IO", AspectConfig.SCHEDULER_MAX_CONCURRENT.getInt(), AspectConfig.SCHEDULER_MAX_QUEUED.getInt(), Duration.of(AspectConfig.SCHEDULER_TICK_BUDGET_MICROS.getLong(), ChronoUnit.MICROS));
     private final PlayerCache playerCache = new PlayerCache(this);
+    private final List<MetricExporter> metricExporters = new ArrayList<>();
 
     public PluginMain(JavaPluginInit init) {
         super(init);
         instance = this;
     }
 
-    @Override
-    protected void setup() {
-    }
-
     @Override
     protected void start() {
         instance = this;
-        playerCache.syncLoad();
+        if (AspectConfig.ENV_WATCH.getBoolean()) {
+            Env.startWatching();
+        }
+        startMetrics();
+        getEventRegistry().register(PlayerDisconnectEvent.class, event -> PlayerHelper.onDisconnect(event.getPlayerRef()));
+        // lookups made before this finished wait on the player cache's load barrier
+        playerCache.beginLoad();
+        registerTask(LifecyclePhase.START, "player-cache", () -> {
+            playerCache.syncLoad();
+            playerCache.startPersistence();
+        });
+        super.start();
     }
 
     @Override
     protected void shutdown() {
-        playerCache.syncSave();
+        super.shutdown();
+        scheduler.shutdown();
+        playerCache.shutdown();
+        Env.stopWatching();
+        Metrics.stopExporting();
+        metricExporters.forEach(Metrics::removeExporter);
+        metricExporters.clear();
         instance = null;
     }
 
+    private void startMetrics() {
+        var exporters = AspectConfig.METRICS_EXPORTERS.get();
+        if (exporters.isEmpty()) {
+            return;
+        }
+
+        if (exporters.contains("log")) {
+            metricExporters.add(new LogMetricExporter());
+        }
+        if (exporters.contains("jfr")) {
+            metricExporters.add(new JfrMetricExporter());
+        }
+        metricExporters.forEach(Metrics::addExporter);
+        Metrics.startExporting(Duration.ofSeconds(AspectConfig.METRICS_EXPORT_INTERVAL_SECONDS.getLong()));
+    }
+
     public static PluginMain getInstance() {
         return instance;
     }
 
+    public AspectScheduler getScheduler() {
+        return scheduler;
+    }
+
     public PlayerCache getPlayerCache() {
         return playerCache;
     }
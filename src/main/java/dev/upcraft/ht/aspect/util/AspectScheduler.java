@@ -0,0 +1,297 @@
+package dev.upcraft.ht.aspect.util;
+
+import com.google.common.collect.MapMaker;
+import com.hypixel.hytale.logger.HytaleLogger;
+import com.hypixel.hytale.server.core.universe.world.World;
+import dev.upcraft.ht.aspect.main.PluginMain;
+import dev.upcraft.ht.aspect.util.metrics.Counter;
+import dev.upcraft.ht.aspect.util.metrics.Metrics;
+import org.jspecify.annotations.Nullable;
+
+import java.lang.ref.WeakReference;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Runs blocking work on virtual threads and hands results back to world threads.
+ * <p>
+ * At most {@code maxConcurrent} tasks run at once, up to {@code maxQueued} more wait for a slot and anything beyond that
+ * fails right away with a {@link RejectedExecutionException}. Continuations handed to a world through {@link #onWorld(World)}
+ * run in passes of at most the tick budget each, whatever is left over runs in the world's next pass.
+ */
+public class AspectScheduler {
+
+    private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
+    private final String name;
+    private final ExecutorService executor;
+    private final Semaphore slots;
+    private final int maxQueued;
+    private final Queue<Task<?>> queue;
+    private final Set<Task<?>> running = ConcurrentHashMap.newKeySet();
+    private final long tickBudgetNanos;
+    // weak keys, the queues only reference their world weakly so unloaded worlds can be collected
+    private final Map<World, WorldQueue> worlds = new MapMaker().weakKeys().makeMap();
+    private final AtomicInteger pendingHandoffs = new AtomicInteger();
+    private final Counter deferredPasses;
+    private volatile boolean shutdown;
+
+    /**
+     * @param name          used for thread names and metrics
+     * @param maxConcurrent maximum number of tasks running at once
+     * @param maxQueued     maximum number of tasks waiting for a slot
+     * @param tickBudget    maximum time spent on handed off continuations per world pass
+     */
+    public AspectScheduler(String name, int maxConcurrent, int maxQueued, Duration tickBudget) {
+        if (maxConcurrent < 1 || maxQueued < 0) {
+            throw new IllegalArgumentException("Scheduler limits must be positive");
+        }
+        this.name = name;
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-", 0).factory());
+        this.slots = new Semaphore(maxConcurrent);
+        this.maxQueued = maxQueued;
+        // a queue needs a capacity of at least one, with maxQueued = 0 submit never offers to it
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, maxQueued));
+        this.tickBudgetNanos = tickBudget.toNanos();
+
+        var prefix = "scheduler." + name.toLowerCase().replace(' ', '_');
+        Metrics.gauge(prefix + ".queued", this::getQueueDepth);
+        Metrics.gauge(prefix + ".running", this::getRunning);
+        Metrics.gauge(prefix + ".pending_handoffs", this::getPendingHandoffs);
+        this.deferredPasses = Metrics.counter(prefix + ".deferred_passes");
+    }
+
+    public static AspectScheduler get() {
+        return PluginMain.getInstance().getScheduler();
+    }
+
+    /**
+     * Runs {@code task} on a virtual thread. Cancelling the returned future interrupts the task.
+     */
+    public <T> CompletableFuture<T> submit(Callable<T> task) {
+        var future = new CompletableFuture<T>();
+        if (this.shutdown) {
+            return CompletableFuture.failedFuture(new RejectedExecutionException("Scheduler %s is shut down".formatted(this.name)));
+        }
+
+        var queued = new Task<>(task, future);
+        // start right away if nothing is waiting, so a free slot is used even if no task may wait
+        var started = this.queue.isEmpty() && this.slots.tryAcquire();
+        if (!started && (this.maxQueued == 0 || !this.queue.offer(queued))) {
+            return CompletableFuture.failedFuture(new RejectedExecutionException("Scheduler %s queue is full".formatted(this.name)));
+        }
+        future.whenComplete((result, error) -> {
+            if (future.isCancelled()) {
+                queued.cancel();
+            }
+        });
+        if (started) {
+            this.start(queued);
+        } else {
+            this.dispatch();
+        }
+        return future;
+    }
+
+    /**
+     * Runs {@code task} on a virtual thread and completes the returned future on the world's thread.
+     */
+    public <T> CompletableFuture<T> submit(Callable<T> task, World world) {
+        return this.submit(task).thenApplyAsync(Function.identity(), this.onWorld(world));
+    }
+
+    /**
+     * @return an executor running tasks on the world's thread, spread over several passes if they exceed the tick budget
+     */
+    public Executor onWorld(World world) {
+        return this.worlds.computeIfAbsent(world, WorldQueue::new);
+    }
+
+    private void dispatch() {
+        while (!this.queue.isEmpty() && this.slots.tryAcquire()) {
+            var task = this.queue.poll();
+            if (task == null) {
+                this.slots.release();
+                continue;
+            }
+            this.start(task);
+        }
+    }
+
+    private <T> void start(Task<T> task) {
+        if (task.future.isDone()) {
+            this.slots.release();
+            return;
+        }
+
+        this.running.add(task);
+        try {
+            task.thread = this.executor.submit(() -> {
+                try {
+                    task.future.complete(task.callable.call());
+                } catch (Throwable e) {
+                    task.future.completeExceptionally(e);
+                } finally {
+                    this.running.remove(task);
+                    this.slots.release();
+                    this.dispatch();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            this.running.remove(task);
+            this.slots.release();
+            task.future.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Rejects new tasks, cancels all queued ones and interrupts the running ones.
+     * Continuations already handed to a world still run, so nothing waiting on them is left hanging.
+     *
+     * @return the number of tasks that were cancelled
+     */
+    public int shutdown() {
+        this.shutdown = true;
+        int cancelled = 0;
+        Task<?> task;
+        while ((task = this.queue.poll()) != null) {
+            cancelled += task.future.cancel(false) ? 1 : 0;
+        }
+        for (Task<?> runningTask : this.running) {
+            cancelled += runningTask.future.cancel(true) ? 1 : 0;
+        }
+        this.executor.shutdownNow();
+        if (cancelled > 0) {
+            LOGGER.atInfo().log("Cancelled %s task(s) of scheduler %s", cancelled, this.name);
+        }
+        return cancelled;
+    }
+
+    public boolean isShutdown() {
+        return this.shutdown;
+    }
+
+    /**
+     * @return the number of tasks waiting for a slot
+     */
+    public long getQueueDepth() {
+        return this.queue.size();
+    }
+
+    public long getRunning() {
+        return this.running.size();
+    }
+
+    /**
+     * @return the number of continuations waiting for their world's thread
+     */
+    public long getPendingHandoffs() {
+        return this.pendingHandoffs.get();
+    }
+
+    private static final class Task<T> {
+
+        private final Callable<T> callable;
+        private final CompletableFuture<T> future;
+        private volatile @Nullable Future<?> thread;
+
+        private Task(Callable<T> callable, CompletableFuture<T> future) {
+            this.callable = callable;
+            this.future = future;
+        }
+
+        void cancel() {
+            var thread = this.thread;
+            if (thread != null) {
+                thread.cancel(true);
+            }
+        }
+    }
+
+    private final class WorldQueue implements Executor {
+
+        private final WeakReference<World> world;
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        private WorldQueue(World world) {
+            this.world = new WeakReference<>(world);
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            if (AspectScheduler.this.shutdown) {
+                throw new RejectedExecutionException("Scheduler %s is shut down".formatted(AspectScheduler.this.name));
+            }
+            this.tasks.add(command);
+            AspectScheduler.this.pendingHandoffs.incrementAndGet();
+            try {
+                this.schedule();
+            } catch (RuntimeException e) {
+                // fail this task, anything else still queued is scheduled again by the next one
+                if (this.tasks.remove(command)) {
+                    AspectScheduler.this.pendingHandoffs.decrementAndGet();
+                }
+                throw e instanceof RejectedExecutionException rejected ? rejected : new RejectedExecutionException("World rejected tasks of scheduler %s".formatted(AspectScheduler.this.name), e);
+            }
+        }
+
+        private void schedule() {
+            if (this.scheduled.compareAndSet(false, true)) {
+                try {
+                    var world = this.world.get();
+                    if (world == null) {
+                        throw new RejectedExecutionException("World of scheduler %s is unloaded".formatted(AspectScheduler.this.name));
+                    }
+                    world.execute(this::drain);
+                } catch (RuntimeException e) {
+                    this.scheduled.set(false);
+                    throw e;
+                }
+            }
+        }
+
+        private void drain() {
+            this.scheduled.set(false);
+            // always make progress, even if a single task exceeds the budget
+            var deadline = System.nanoTime() + AspectScheduler.this.tickBudgetNanos;
+            Runnable task;
+            do {
+                task = this.tasks.poll();
+                if (task == null) {
+                    return;
+                }
+                AspectScheduler.this.pendingHandoffs.decrementAndGet();
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    LOGGER.atWarning().withCause(e).log("Task handed off by scheduler %s failed", AspectScheduler.this.name);
+                }
+            } while (System.nanoTime() < deadline);
+
+            if (!this.tasks.isEmpty()) {
+                AspectScheduler.this.deferredPasses.increment();
+                try {
+                    this.schedule();
+                } catch (RuntimeException e) {
+                    LOGGER.atWarning().withCause(e).log("Unable to schedule remaining tasks of scheduler %s, retrying with the next hand off", AspectScheduler.this.name);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package dev.upcraft.ht.aspect.util;
+
+import com.hypixel.hytale.logger.HytaleLogger;
+import com.hypixel.hytale.server.core.Message;
+import com.hypixel.hytale.server.core.console.ConsoleSender;
+import com.hypixel.hytale.server.core.universe.PlayerRef;
+import com.hypixel.hytale.server.core.universe.Universe;
+import com.hypixel.hytale.server.core.universe.world.World;
+import dev.upcraft.ht.aspect.util.metrics.Histogram;
+import dev.upcraft.ht.aspect.util.metrics.Metrics;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Collects broadcasts and delivers them in batches, walking each world's player list once per batch instead of once per message.
+ * <p>
+ * The first message after a flush schedules the next one on the default world, so everything queued until that world
+ * runs its pending tasks is delivered together. Each world then receives the batch on its own thread.
+ */
+public class BroadcastQueue {
+
+    private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
+    private static final Histogram BATCH_SIZE = Metrics.histogram("broadcast.batch_size");
+    private final ConcurrentLinkedQueue<Broadcast> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final boolean mergeDuplicates;
+    private final AtomicLong queued = new AtomicLong();
+    private final AtomicLong merged = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+
+    /**
+     * @param mergeDuplicates whether equal broadcasts within one batch are only delivered once
+     */
+    public BroadcastQueue(boolean mergeDuplicates) {
+        this.mergeDuplicates = mergeDuplicates;
+    }
+
+    public void enqueue(Message message) {
+        this.enqueue(message, null, null);
+    }
+
+    public void enqueue(Message message, @Nullable UUID senderId) {
+        this.enqueue(message, senderId, null);
+    }
+
+    /**
+     * @param audience if not {@code null}, only players matching it receive the message; the console always does
+     */
+    public void enqueue(Message message, @Nullable UUID senderId, @Nullable Predicate<PlayerRef> audience) {
+        this.queue.add(new Broadcast(message, senderId, audience));
+        this.queued.incrementAndGet();
+        if (this.flushScheduled.compareAndSet(false, true)) {
+            try {
+                Universe.get().getDefaultWorld().execute(this::flush);
+            } catch (RuntimeException e) {
+                // e.g. the default world is shutting down, deliver right away instead of never
+                LOGGER.atWarning().withCause(e).log("Unable to schedule broadcast flush, flushing on the calling thread");
+                this.flush();
+            }
+        }
+    }
+
+    /**
+     * Delivers everything queued so far. Runs automatically, but may be called to deliver early.
+     */
+    public void flush() {
+        this.flushScheduled.set(false);
+        var batch = this.drain();
+        if (batch.isEmpty()) {
+            return;
+        }
+        this.batches.incrementAndGet();
+        BATCH_SIZE.record(batch.size());
+
+        var deliveries = new ArrayList<Delivery>(batch.size());
+        for (Broadcast broadcast : batch) {
+            ConsoleSender.INSTANCE.sendMessage(broadcast.message());
+            deliveries.add(new Delivery(broadcast, broadcast.senderId() != null ? PlayerHelper.viewersToCheck(broadcast.senderId()) : null));
+        }
+
+        for (World world : Universe.get().getWorlds().values()) {
+            try {
+                world.execute(() -> {
+                    try {
+                        deliver(world.getPlayerRefs(), deliveries);
+                    } catch (RuntimeException e) {
+                        LOGGER.atWarning().withCause(e).log("Unable to deliver broadcasts in world %s", world.getName());
+                    }
+                });
+            } catch (RuntimeException e) {
+                LOGGER.atWarning().withCause(e).log("Unable to deliver broadcasts in world %s", world.getName());
+            }
+        }
+    }
+
+    private List<Broadcast> drain() {
+        Collection<Broadcast> batch = this.mergeDuplicates ? new LinkedHashSet<>() : new ArrayList<>();
+        int drained = 0;
+        Broadcast broadcast;
+        while ((broadcast = this.queue.poll()) != null) {
+            batch.add(broadcast);
+            drained++;
+        }
+        this.merged.addAndGet(drained - batch.size());
+        return List.copyOf(batch);
+    }
+
+    private static void deliver(Collection<PlayerRef> recipients, List<Delivery> deliveries) {
+        var start = System.nanoTime();
+        long sent = 0;
+        for (PlayerRef playerRef : recipients) {
+            for (Delivery delivery : deliveries) {
+                var broadcast = delivery.broadcast();
+                if (broadcast.audience() != null && !broadcast.audience().test(playerRef)) {
+                    continue;
+                }
+                if (broadcast.senderId() != null && PlayerHelper.isHiddenFrom(playerRef, broadcast.senderId(), delivery.checkOnly())) {
+                    continue;
+                }
+                playerRef.sendMessage(broadcast.message());
+                sent++;
+            }
+        }
+        PlayerHelper.MESSAGES_SENT.add(sent);
+        PlayerHelper.FANOUT_NANOS.recordSince(start);
+    }
+
+    public long getQueued() {
+        return this.queued.get();
+    }
+
+    public long getMerged() {
+        return this.merged.get();
+    }
+
+    public long getBatches() {
+        return this.batches.get();
+    }
+
+    public int getPending() {
+        return this.queue.size();
+    }
+
+    /**
+     * Equality is what duplicate merging uses: the same message, sender and audience filter instance.
+     */
+    private record Broadcast(Message message, @Nullable UUID senderId, @Nullable Predicate<PlayerRef> audience) {
+    }
+
+    private record Delivery(Broadcast broadcast, @Nullable Set<UUID> checkOnly) {
+    }
+}
@@ -1,75 +1,211 @@
 package dev.upcraft.ht.aspect.util;
 
 import com.google.common.flogger.LazyArgs;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.hypixel.hytale.logger.HytaleLogger;
+import dev.upcraft.ht.aspect.util.metrics.Counter;
+import dev.upcraft.ht.aspect.util.metrics.Metrics;
+import org.jspecify.annotations.Nullable;
 
 import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchService;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.function.Function;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.Supplier;
 
 public class Env {
 
     private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
-    private static final Map<String, Optional<String>> env = new ConcurrentHashMap<>();
-    private static final List<Function<String, Optional<String>>> LOOKUPS = new ArrayList<>();
+    private static final Path ENV_FILE = Path.of(".env");
+    private static final List<Listener> LISTENERS = new CopyOnWriteArrayList<>();
+    private static final Counter LOOKUPS = Metrics.counter("env.lookups");
+    private static final Counter MISSES = Metrics.counter("env.misses");
+    private static final Counter RELOADS = Metrics.counter("env.reloads");
+    private static volatile Snapshot snapshot;
+    private static @Nullable WatchService watchService;
 
     static {
         LOGGER.atConfig().log("Loading environment variables...");
-        LOOKUPS.add(key -> Optional.ofNullable(System.getenv(key)));
-        lookupFromFile(Path.of(".env"));
-        System.getenv().forEach((envKey, envValue) -> env.put(envKey, Optional.of(envValue)));
-
-        // load files such as
-        // production.env
-        // development.env
-        var envType = getOrDefault(EnvironmentType.ENV_KEY, () -> EnvironmentType.getDefault().name());
-        lookupFromFile(Path.of("%s.env".formatted(envType)));
+        snapshot = load();
     }
 
     public static String getOrThrow(String key) {
-        return lookup(key, Optional::empty).orElseThrow(() -> new IllegalStateException("Missing environment variable: '%s'".formatted(key)));
+        return get(key).orElseThrow(() -> new IllegalStateException("Missing environment variable: '%s'".formatted(key)));
     }
 
     public static String getOrDefault(String key, Supplier<String> defaultValue) {
-        return lookup(key, () -> {
-            var value = Objects.requireNonNull(defaultValue.get(), () -> "Default value was null for environment variable: '%s'".formatted(key));
-            return Optional.of(value);
-        }).orElseThrow(() -> new IllegalStateException("Missing environment variable: '%s'".formatted(key)));
+        var value = lookup(key);
+        if (value != null) {
+            return value;
+        }
+        return Objects.requireNonNull(defaultValue.get(), () -> "Default value was null for environment variable: '%s'".formatted(key));
     }
 
     public static Optional<String> get(String key) {
-        return lookup(key, Optional::empty);
+        return Optional.ofNullable(lookup(key));
     }
 
-    private static Optional<String> lookup(String key, Supplier<Optional<String>> defaultValue) {
-        return env.computeIfAbsent(key, s -> {
-            for (Function<String, Optional<String>> lookup : LOOKUPS) {
-                var opt = lookup.apply(s);
-                if (opt.isPresent()) {
-                    return opt;
+    private static @Nullable String lookup(String key) {
+        var value = snapshot.values().get(key);
+        LOOKUPS.increment();
+        if (value == null) {
+            MISSES.increment();
+        }
+        return value;
+    }
+
+    /**
+     * @return the current merged view of all environment sources, later reloads do not affect it
+     */
+    public static Snapshot snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Called after every reload that changed at least one value, on the thread that performed the reload.
+     */
+    public static void addListener(Listener listener) {
+        LISTENERS.add(listener);
+    }
+
+    public static void removeListener(Listener listener) {
+        LISTENERS.remove(listener);
+    }
+
+    /**
+     * Re-reads all sources and atomically swaps in the new snapshot. Readers are never blocked.
+     */
+    public static synchronized void reload() {
+        var previous = snapshot;
+        var next = load();
+        snapshot = next;
+        RELOADS.increment();
+
+        var changed = new HashSet<String>();
+        previous.values().forEach((key, value) -> {
+            if (!value.equals(next.values().get(key))) {
+                changed.add(key);
+            }
+        });
+        next.values().keySet().stream().filter(key -> !previous.values().containsKey(key)).forEach(changed::add);
+        if (changed.isEmpty()) {
+            return;
+        }
+
+        LOGGER.atInfo().log("Reloaded environment, %s value(s) changed", changed.size());
+        var changedKeys = Set.copyOf(changed);
+        for (Listener listener : LISTENERS) {
+            try {
+                listener.onChange(changedKeys, previous, next);
+            } catch (RuntimeException e) {
+                LOGGER.atWarning().withCause(e).log("Environment change listener failed");
+            }
+        }
+    }
+
+    /**
+     * Watches the env files in the working directory and reloads whenever one of them changes.
+     */
+    public static synchronized void startWatching() {
+        if (watchService != null) {
+            return;
+        }
+
+        try {
+            var watcher = FileSystems.getDefault().newWatchService();
+            ENV_FILE.toAbsolutePath().getParent().register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+            watchService = watcher;
+            new ThreadFactoryBuilder().setNameFormat("Aspect Env Watcher").setDaemon(true).build().newThread(() -> watch(watcher)).start();
+        } catch (IOException e) {
+            LOGGER.atWarning().withCause(e).log("Unable to watch environment files, changes will require a restart");
+        }
+    }
+
+    public static synchronized void stopWatching() {
+        if (watchService == null) {
+            return;
+        }
+
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            LOGGER.atFine().withCause(e).log("Unable to close environment watcher");
+        }
+        watchService = null;
+    }
+
+    private static void watch(WatchService watcher) {
+        try {
+            while (true) {
+                var key = watcher.take();
+                var relevant = key.pollEvents().stream()
+                        .map(event -> event.context() instanceof Path path ? path.getFileName().toString() : null)
+                        .anyMatch(name -> name != null && (name.equals(ENV_FILE.toString()) || name.equals(typeFile(snapshot.environmentType()).toString())));
+                key.reset();
+                if (relevant) {
+                    reload();
                 }
             }
+        } catch (ClosedWatchServiceException e) {
+            // stopped
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
 
-            return Objects.requireNonNull(defaultValue.get());
-        });
+    /**
+     * Merges all sources, the first one to define a key wins: process environment, {@code .env}, {@code <environment type>.env}.
+     */
+    private static Snapshot load() {
+        var system = System.getenv();
+        var base = readFile(ENV_FILE);
+
+        // load files such as
+        // production.env
+        // development.env
+        var envType = Objects.requireNonNullElseGet(system.get(EnvironmentType.ENV_KEY), () -> base.getOrDefault(EnvironmentType.ENV_KEY, EnvironmentType.getDefault().name()));
+        var values = new HashMap<>(readFile(typeFile(envType)));
+        values.putAll(base);
+        values.putAll(system);
+        return new Snapshot(Map.copyOf(values), envType);
+    }
+
+    private static Path typeFile(String envType) {
+        return Path.of("%s.env".formatted(envType));
     }
 
-    private static void lookupFromFile(Path envFile) {
+    private static Map<String, String> readFile(Path envFile) {
         try (var reader = Files.newBufferedReader(envFile)) {
             LOGGER.atFine().log("Adding %s", LazyArgs.lazy(envFile::toAbsolutePath));
             var props = new Properties();
             props.load(reader);
 
-            LOOKUPS.add(s -> Optional.ofNullable(props.getProperty(s)));
+            var values = new HashMap<String, String>();
+            props.stringPropertyNames().forEach(name -> values.put(name, props.getProperty(name)));
+            return values;
         } catch (IOException e) {
             if (!(e instanceof NoSuchFileException)) {
                 LOGGER.atWarning().withCause(e).log("Unable to load additional environment from file %s", LazyArgs.lazy(envFile::toAbsolutePath));
             }
+            return Map.of();
         }
     }
+
+    /**
+     * Immutable merged view of all environment sources at one point in time.
+     */
+    public record Snapshot(Map<String, String> values, String environmentType) {
+    }
+
+    @FunctionalInterface
+    public interface Listener {
+
+        void onChange(Set<String> changedKeys, Snapshot previous, Snapshot current);
+    }
 }
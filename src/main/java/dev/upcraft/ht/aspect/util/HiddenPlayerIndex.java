@@ -0,0 +1,60 @@
+package dev.upcraft.ht.aspect.util;
+
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Reverse index of {@code HiddenPlayersManager} state: for each hidden player, the viewers that hide them.
+ * <p>
+ * Only hides made through {@link PlayerHelper#hidePlayer} are recorded. A hide made elsewhere is missing from the index
+ * and a show made elsewhere leaves a stale entry, so it is a subset of the real state unless all code uses those
+ * helpers. Viewers are dropped when they disconnect, see {@link PlayerHelper#onDisconnect}.
+ */
+public class HiddenPlayerIndex {
+
+    private final ConcurrentMap<UUID, Set<UUID>> hiddenFrom = new ConcurrentHashMap<>();
+
+    public void hide(UUID viewer, UUID target) {
+        this.hiddenFrom.compute(target, (uuid, viewers) -> {
+            if (viewers == null) {
+                viewers = ConcurrentHashMap.newKeySet();
+            }
+            viewers.add(viewer);
+            return viewers;
+        });
+    }
+
+    public void show(UUID viewer, UUID target) {
+        this.hiddenFrom.computeIfPresent(target, (uuid, viewers) -> {
+            viewers.remove(viewer);
+            return viewers.isEmpty() ? null : viewers;
+        });
+    }
+
+    /**
+     * Drops everything a viewer hides, their hidden players are reset when they disconnect.
+     */
+    public void removeViewer(UUID viewer) {
+        for (var target : this.hiddenFrom.keySet()) {
+            this.show(viewer, target);
+        }
+    }
+
+    /**
+     * @return the viewers that hide the target, empty if it is hidden from nobody
+     */
+    public Set<UUID> getViewersHiding(UUID target) {
+        var viewers = this.hiddenFrom.get(target);
+        return viewers != null ? viewers : Set.of();
+    }
+
+    public boolean isHiddenFromAnyone(UUID target) {
+        return this.hiddenFrom.containsKey(target);
+    }
+
+    public void clear() {
+        this.hiddenFrom.clear();
+    }
+}
@@ -1,18 +1,32 @@
 package dev.upcraft.ht.aspect.util;
 
-import com.google.common.collect.BiMap;
-import com.google.common.collect.HashBiMap;
-import com.google.gson.*;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 import com.hypixel.hytale.logger.HytaleLogger;
 import com.hypixel.hytale.server.core.Options;
-import com.hypixel.hytale.server.core.auth.ProfileServiceClient;
-import com.hypixel.hytale.server.core.auth.ServerAuthManager;
 import com.hypixel.hytale.server.core.plugin.JavaPlugin;
 import com.hypixel.hytale.server.core.universe.Universe;
 import com.hypixel.hytale.server.core.util.io.BlockingDiskFile;
 import dev.upcraft.ht.aspect.api.auth.PlayerGameProfile;
-import dev.upcraft.ht.aspect.api.types.Pair;
 import dev.upcraft.ht.aspect.main.PluginMain;
+import dev.upcraft.ht.aspect.util.cache.CompactPlayerIndex;
+import dev.upcraft.ht.aspect.util.cache.ConcurrentPlayerIndex;
+import dev.upcraft.ht.aspect.util.cache.GuardedProfileSource;
+import dev.upcraft.ht.aspect.util.cache.NameCompletionIndex;
+import dev.upcraft.ht.aspect.util.cache.PlayerIndex;
+import dev.upcraft.ht.aspect.util.cache.PlayerSnapshot;
+import dev.upcraft.ht.aspect.util.cache.ProfileSource;
+import dev.upcraft.ht.aspect.util.cache.SessionProfileSource;
+import dev.upcraft.ht.aspect.util.cache.SnapshotPlayerIndex;
+import dev.upcraft.ht.aspect.util.cache.TieredPlayerIndex;
+import dev.upcraft.ht.aspect.util.config.AspectConfig;
+import dev.upcraft.ht.aspect.util.metrics.Counter;
+import dev.upcraft.ht.aspect.util.metrics.Histogram;
+import dev.upcraft.ht.aspect.util.metrics.Metrics;
 import org.jspecify.annotations.Nullable;
 
 import java.io.BufferedReader;
@@ -20,190 +34,1213 @@ import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.nio.file.Files;
-import java.util.Optional;
-import java.util.UUID;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
-import java.util.function.Predicate;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
-// FIXME make this async, not blocking
+/**
+ * Username and uuid cache backed by the remote profile service.
+ * <p>
+ * Lookups never block: hits complete right away, misses are resolved on virtual threads. Loading runs as a lifecycle
+ * task, and once {@link #startPersistence()} was called updates are written behind on the persistence executor. Before
+ * that, or with write-behind disabled, an update appends to the journal on the updating thread.
+ */
 public class PlayerCache extends BlockingDiskFile {
 
-    private static final int VERSION = 0;
+    private static final int VERSION = 1;
+    private static final int SNAPSHOT_NAME_BATCH = 4096;
     private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClassFull();
-    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
-    private final BiMap<UUID, String> cache = HashBiMap.create();
+    private static final Counter HITS = Metrics.counter("player_cache.hits");
+    private static final Counter MISSES = Metrics.counter("player_cache.misses");
+    private static final Counter SHARED_UPDATES = Metrics.counter("player_cache.shared_updates");
+    private static final Histogram REMOTE_LOOKUP_NANOS = Metrics.histogram("player_cache.remote_lookup_nanos");
+    private static final Histogram FLUSH_NANOS = Metrics.histogram("player_cache.flush_nanos");
+    private static final Histogram SAVE_NANOS = Metrics.histogram("player_cache.save_nanos");
+    private static final Histogram LOCK_WAIT_NANOS = Metrics.histogram("player_cache.lock_wait_nanos");
+    private final PlayerIndex cache;
+    private final Path snapshotPath;
+    private final @Nullable SharedPlayerLog shared;
+    private final @Nullable NameCompletionIndex completions;
+
+    private final ProfileSource profileSource;
+    private final ExecutorService profileExecutor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("Aspect Profile Lookup-", 0).factory());
+    private final ConcurrentMap<UUID, CompletableFuture<PlayerGameProfile>> inflightById = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, CompletableFuture<PlayerGameProfile>> inflightByUsername = new ConcurrentHashMap<>();
+    private final AtomicLong remoteLookups = new AtomicLong();
+    private final AtomicLong coalescedLookups = new AtomicLong();
+    private final Cache<UUID, Boolean> negativeIds;
+    private final Cache<String, Boolean> negativeUsernames;
+    private final AtomicLong backgroundRefreshes = new AtomicLong();
+    // background refreshes only get a small share of the profile lookup budget
+    private final Semaphore refreshPermits = new Semaphore(AspectConfig.PLAYER_CACHE_REFRESH_CONCURRENCY.getInt());
+
+    private final PlayerCacheJournal journal;
+    // guards the journal and the snapshot, taken before the pending monitor
+    private final ReentrantLock journalLock = new ReentrantLock();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final List<PlayerCacheJournal.Upsert> pending = new ArrayList<>();
+
+    private final AtomicInteger dirtyEntries = new AtomicInteger();
+    private final AtomicBoolean flushQueued = new AtomicBoolean();
+    private final AtomicBoolean compactionQueued = new AtomicBoolean();
+    private final AtomicLong flushesPerformed = new AtomicLong();
+    private final AtomicLong flushesSkipped = new AtomicLong();
+    private final AtomicLong compactions = new AtomicLong();
+    private volatile @Nullable ScheduledExecutorService persistence;
+    // completed while no load is in progress, see beginLoad()
+    private volatile CompletableFuture<Void> loaded = CompletableFuture.completedFuture(null);
+    private volatile boolean loadSucceeded;
+    // the file was written by a newer version, it is neither loaded nor ever overwritten
+    private volatile boolean newerFormat;
 
     public PlayerCache(JavaPlugin plugin) {
-        super(plugin.getDataDirectory().resolve("playercache.json"));
+        this(plugin.getDataDirectory().resolve("playercache.json"), new GuardedProfileSource(new SessionProfileSource()));
+    }
+
+    public PlayerCache(Path path, ProfileSource profileSource) {
+        super(path);
+        this.profileSource = profileSource;
+        var index = createIndex(path, AspectConfig.PLAYER_CACHE_INDEX.get(), AspectConfig.PLAYER_CACHE_HOT_MAX_ENTRIES.getLong(), this::runMaintenance);
+        this.cache = AspectConfig.PLAYER_CACHE_FORMAT.get().equals("binary") ? new SnapshotPlayerIndex(index) : index;
+        this.snapshotPath = path.resolveSibling("playercache.bin");
+        this.shared = createSharedLog(AspectConfig.PLAYER_CACHE_SHARED_DIRECTORY.get());
+        this.completions = completionsEnabled(AspectConfig.PLAYER_CACHE_NAME_COMPLETION.get(), this.cache) ? new NameCompletionIndex() : null;
+        var negativeTtl = Duration.ofSeconds(AspectConfig.PLAYER_CACHE_NEGATIVE_TTL_SECONDS.getLong());
+        this.negativeIds = CacheBuilder.newBuilder().expireAfterWrite(negativeTtl).maximumSize(100_000).build();
+        this.negativeUsernames = CacheBuilder.newBuilder().expireAfterWrite(negativeTtl).maximumSize(100_000).build();
+        this.journal = new PlayerCacheJournal(this.path.resolveSibling("playercache.journal"));
+
+        Metrics.gauge("player_cache.entries", this.cache::size);
+        Metrics.gauge("player_cache.dirty_entries", this.dirtyEntries::get);
+        Metrics.gauge("player_cache.journal_bytes", this.journal::size);
+        Metrics.gauge("player_cache.file_bytes", this::getFileSize);
+        Metrics.gauge("player_cache.remote_lookups", this.remoteLookups::get);
+        Metrics.gauge("player_cache.coalesced_lookups", this.coalescedLookups::get);
+    }
+
+    private static PlayerIndex createIndex(Path path, String type, long maxHotEntries, Executor maintenance) {
+        if (maxHotEntries <= 0) {
+            return switch (type) {
+                case "concurrent" -> new ConcurrentPlayerIndex();
+                case "compact" -> new CompactPlayerIndex();
+                default -> throw new IllegalArgumentException("Unknown player cache index type: '%s'".formatted(type));
+            };
+        }
+
+        try {
+            return new TieredPlayerIndex(path.resolveSibling("playercache.cold"), maxHotEntries, maintenance);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to create cold player cache tier!", e);
+        }
+    }
+
+    // index upkeep such as moving entries between tiers, kept off world threads
+    private void runMaintenance(Runnable task) {
+        var executor = this.persistence;
+        (executor != null ? executor : this.profileExecutor).execute(task);
+    }
+
+    // the completion index keeps every name on the heap, which the binary format and the disk tier exist to avoid
+    private static boolean completionsEnabled(String setting, PlayerIndex index) {
+        return switch (setting) {
+            case "true" -> true;
+            case "false" -> false;
+            default -> !(index instanceof SnapshotPlayerIndex) && !(index instanceof TieredPlayerIndex);
+        };
+    }
+
+    private static @Nullable SharedPlayerLog createSharedLog(String directory) {
+        if (directory.isBlank()) {
+            return null;
+        }
+
+        try {
+            return new SharedPlayerLog(Path.of(directory));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to create shared player cache directory!", e);
+        }
     }
+
     public static PlayerCache get() {
         return PluginMain.getInstance().getPlayerCache();
     }
 
+    /**
+     * Records a player that was seen on this server, e.g. on join.
+     *
+     * Never waits for a load in progress, the update is applied on top of the loaded data once it finished.
+     *
+     * @return whether the username changed
+     */
     public boolean updatePlayerProfile(UUID uuid, String username) {
-        return this.modify(map -> {
-            var prev = map.put(uuid, username);
-            return !username.equals(prev);
-        });
+        return updatePlayerProfile(uuid, username, true);
     }
 
-    // TODO wrap in custom class to make this nicer
-    private Optional<Pair<ProfileServiceClient, String>> getProfileLookup() {
-        var authManager = ServerAuthManager.getInstance();
-        if(!authManager.hasSessionToken()) {
-            LOGGER.atWarning().atMostEvery(12, TimeUnit.HOURS).log("No session token available, unable to do profile lookup");
-            return Optional.empty();
+    private boolean updatePlayerProfile(UUID uuid, String username, boolean seen) {
+        var now = System.currentTimeMillis();
+        var seenWriteIntervalMillis = TimeUnit.SECONDS.toMillis(AspectConfig.PLAYER_CACHE_SEEN_WRITE_INTERVAL_SECONDS.getLong());
+        boolean renamed;
+        // not taking the file lock, writers never wait for a save in progress.
+        // the pending lock keeps the journal in the same order as the cache
+        var waitStart = System.nanoTime();
+        synchronized (this.pending) {
+            LOCK_WAIT_NANOS.recordSince(waitStart);
+            var prev = this.cache.get(uuid);
+            if (seen && prev != null && this.loaded.isDone() && username.equals(prev.name()) && now - prev.lastVerified() < seenWriteIntervalMillis) {
+                // a returning player with an unchanged name, only persisted once per interval instead of on every join.
+                // lastVerified keeps the time of the last persisted write
+                this.putEntry(uuid, new PlayerIndex.Entry(username, now, prev.lastVerified()));
+                return false;
+            }
+            var lastSeen = seen ? now : prev != null ? prev.lastSeen() : 0L;
+            var entry = new PlayerIndex.Entry(username, lastSeen, now);
+            this.putEntry(uuid, entry);
+            renamed = prev == null || !username.equals(prev.name());
+            this.pending.add(new PlayerCacheJournal.Upsert(uuid, entry));
         }
 
-        return Optional.of(new Pair<>(authManager.getProfileServiceClient(), authManager.getSessionToken()));
+        this.negativeIds.invalidate(uuid);
+        this.negativeUsernames.invalidate(username);
+        this.markDirty();
+        return renamed;
     }
 
+    /**
+     * Remote results are delivered on the default world's thread, see {@link #getProfileForId(UUID, Executor)}.
+     */
     public CompletableFuture<PlayerGameProfile> getProfileForId(UUID id) {
+        return deliver(afterLoad(() -> resolveId(id)), this::defaultExecutor);
+    }
+
+    /**
+     * @param executor the executor remote results are delivered on, cache hits complete immediately
+     */
+    public CompletableFuture<PlayerGameProfile> getProfileForId(UUID id, Executor executor) {
+        return deliver(afterLoad(() -> resolveId(id)), () -> executor);
+    }
+
+    /**
+     * Remote results are delivered on the default world's thread, see {@link #getProfileForUsername(String, Executor)}.
+     */
+    public CompletableFuture<PlayerGameProfile> getProfileForUsername(String name) {
+        return deliver(afterLoad(() -> resolveUsername(name)), this::defaultExecutor);
+    }
+
+    /**
+     * @param executor the executor remote results are delivered on, cache hits complete immediately
+     */
+    public CompletableFuture<PlayerGameProfile> getProfileForUsername(String name, Executor executor) {
+        return deliver(afterLoad(() -> resolveUsername(name)), () -> executor);
+    }
+
+    /**
+     * Load barrier: lookups made while the cache is still loading resolve once it finished instead of seeing a partial cache.
+     */
+    private <T> CompletableFuture<T> afterLoad(Supplier<CompletableFuture<T>> lookup) {
+        var loaded = this.loaded;
+        return loaded.isDone() ? lookup.get() : loaded.thenComposeAsync(unused -> lookup.get(), this.profileExecutor);
+    }
+
+    /**
+     * Spread over several ticks if many remote lookups complete at once. Without a running server there is no world
+     * thread to hand results to, they are delivered on the profile executor instead.
+     */
+    private Executor defaultExecutor() {
+        var plugin = PluginMain.getInstance();
+        var universe = Universe.get();
+        var world = universe != null ? universe.getDefaultWorld() : null;
+        if (plugin == null || world == null) {
+            return this.profileExecutor;
+        }
+        return plugin.getScheduler().onWorld(world);
+    }
+
+    /**
+     * @param executor only resolved if the result is not known yet, cache hits never touch it
+     */
+    private static <T> CompletableFuture<T> deliver(CompletableFuture<T> future, Supplier<Executor> executor) {
+        return future.isDone() ? future : future.thenApplyAsync(Function.identity(), executor.get());
+    }
+
+    private CompletableFuture<PlayerGameProfile> resolveId(UUID id) {
         var cachedUsername = readUsernameForId(id);
 
-        if(cachedUsername == null) {
-            var lookup = getProfileLookup();
-            if(lookup.isPresent()) {
-                var profileService = lookup.get().first();
-                var sessionToken = lookup.get().second();
-
-                return profileService.getProfileByUuidAsync(id, sessionToken)
-                        .thenApplyAsync(publicGameProfile -> {
-                            if(publicGameProfile != null) {
-                                updatePlayerProfile(publicGameProfile.getUuid(), publicGameProfile.getUsername());
-                                return new PlayerGameProfile(publicGameProfile.getUuid(), publicGameProfile.getUsername());
-                            }
-                            return new PlayerGameProfile(id, null);
-                        }, Universe.get().getDefaultWorld());
-            }
+        if(cachedUsername == null && this.negativeIds.getIfPresent(id) == null && this.profileSource.isAvailable()) {
+            return lookupById(id);
         }
 
         return CompletableFuture.completedFuture(new PlayerGameProfile(id, cachedUsername));
     }
 
-    public CompletableFuture<PlayerGameProfile> getProfileForUsername(String name) {
+    private CompletableFuture<PlayerGameProfile> resolveUsername(String name) {
         var cachedId = readIdForUsername(name);
 
-        if(cachedId == null) {
-            var lookup = getProfileLookup();
-            if(lookup.isPresent()) {
-                var profileService = lookup.get().first();
-                var sessionToken = lookup.get().second();
-
-                return profileService.getProfileByUsernameAsync(name, sessionToken)
-                        .thenApplyAsync(publicGameProfile -> {
-                            if(publicGameProfile != null) {
-                                updatePlayerProfile(publicGameProfile.getUuid(), publicGameProfile.getUsername());
-                                return new PlayerGameProfile(publicGameProfile.getUuid(), publicGameProfile.getUsername());
-                            }
-                            return new PlayerGameProfile(null, name);
-                        }, Universe.get().getDefaultWorld());
-            }
+        if(cachedId == null && this.negativeUsernames.getIfPresent(name) == null && this.profileSource.isAvailable()) {
+            return singleFlight(this.inflightByUsername, name, key -> this.profileSource.lookupByUsername(key)
+                    .handleAsync((profile, error) -> {
+                        if(isRejected(error)) {
+                            return new PlayerGameProfile(null, key);
+                        }
+                        if(error != null) {
+                            throw new CompletionException(error);
+                        }
+                        if(profile != null) {
+                            updatePlayerProfile(profile.unwrapId(), profile.unwrapUsername(), false);
+                            return profile;
+                        }
+                        this.negativeUsernames.put(key, Boolean.TRUE);
+                        return new PlayerGameProfile(null, key);
+                    }, this.profileExecutor));
         }
 
         return CompletableFuture.completedFuture(new PlayerGameProfile(cachedId, name));
     }
 
+    private CompletableFuture<PlayerGameProfile> lookupById(UUID id) {
+        return singleFlight(this.inflightById, id, key -> this.profileSource.lookupById(key)
+                .handleAsync((profile, error) -> {
+                    if(isRejected(error)) {
+                        return new PlayerGameProfile(key, null);
+                    }
+                    if(error != null) {
+                        throw new CompletionException(error);
+                    }
+                    if(profile != null) {
+                        updatePlayerProfile(profile.unwrapId(), profile.unwrapUsername(), false);
+                        return profile;
+                    }
+                    this.negativeIds.put(key, Boolean.TRUE);
+                    return new PlayerGameProfile(key, null);
+                }, this.profileExecutor));
+    }
+
+    /**
+     * Lookups shed by the {@link GuardedProfileSource} fail fast, they answer with a partial profile and are not negatively cached.
+     */
+    private static boolean isRejected(@Nullable Throwable error) {
+        if (error instanceof CompletionException) {
+            error = error.getCause();
+        }
+        return error instanceof RejectedExecutionException;
+    }
+
+    /**
+     * Stale-while-revalidate: the cached name is served as-is while it is re-verified in the background. At most
+     * {@link AspectConfig#PLAYER_CACHE_REFRESH_CONCURRENCY} refreshes run at once, further stale hits are refreshed by a later lookup.
+     */
+    private void refreshIfStale(UUID id, PlayerIndex.Entry entry) {
+        var refreshAfterSeconds = AspectConfig.PLAYER_CACHE_REFRESH_AFTER_SECONDS.getLong();
+        if (refreshAfterSeconds <= 0 || System.currentTimeMillis() - entry.lastVerified() < TimeUnit.SECONDS.toMillis(refreshAfterSeconds)) {
+            return;
+        }
+        if (this.inflightById.containsKey(id) || !this.profileSource.isAvailable() || !this.refreshPermits.tryAcquire()) {
+            return;
+        }
+
+        this.backgroundRefreshes.incrementAndGet();
+        CompletableFuture<PlayerGameProfile> refresh;
+        try {
+            refresh = lookupById(id);
+        } catch (RuntimeException e) {
+            this.refreshPermits.release();
+            throw e;
+        }
+        refresh.whenComplete((profile, error) -> {
+            this.refreshPermits.release();
+            if (error != null) {
+                LOGGER.atFine().withCause(error).log("Background refresh failed for %s", id);
+            }
+        });
+    }
+
+    /**
+     * Resolves many players at once, misses are sent to the profile service with bounded concurrency.
+     *
+     * @return a future holding one profile per distinct id, in iteration order of {@code ids}
+     */
+    public CompletableFuture<Map<UUID, PlayerGameProfile>> getProfilesForIds(Collection<UUID> ids) {
+        return deliver(resolveIds(ids), this::defaultExecutor);
+    }
+
+    /**
+     * @param executor the executor the result is delivered on if any remote lookup was needed
+     */
+    public CompletableFuture<Map<UUID, PlayerGameProfile>> getProfilesForIds(Collection<UUID> ids, Executor executor) {
+        return deliver(resolveIds(ids), () -> executor);
+    }
+
+    private CompletableFuture<Map<UUID, PlayerGameProfile>> resolveIds(Collection<UUID> ids) {
+        return afterLoad(() -> resolveAll(ids, id -> {
+            var name = readUsernameForId(id);
+            return name != null ? new PlayerGameProfile(id, name) : null;
+        }, this::resolveId, id -> new PlayerGameProfile(id, null)));
+    }
+
+    /**
+     * Resolves many players at once, misses are sent to the profile service with bounded concurrency.
+     *
+     * @return a future holding one profile per distinct username, in iteration order of {@code names}
+     */
+    public CompletableFuture<Map<String, PlayerGameProfile>> getProfilesForUsernames(Collection<String> names) {
+        return deliver(resolveUsernames(names), this::defaultExecutor);
+    }
+
+    /**
+     * @param executor the executor the result is delivered on if any remote lookup was needed
+     */
+    public CompletableFuture<Map<String, PlayerGameProfile>> getProfilesForUsernames(Collection<String> names, Executor executor) {
+        return deliver(resolveUsernames(names), () -> executor);
+    }
+
+    private CompletableFuture<Map<String, PlayerGameProfile>> resolveUsernames(Collection<String> names) {
+        return afterLoad(() -> resolveAll(names, name -> {
+            var id = readIdForUsername(name);
+            return id != null ? new PlayerGameProfile(id, name) : null;
+        }, this::resolveUsername, name -> new PlayerGameProfile(null, name)));
+    }
+
+    private <K> CompletableFuture<Map<K, PlayerGameProfile>> resolveAll(Collection<K> keys, Function<K, @Nullable PlayerGameProfile> cached, Function<K, CompletableFuture<PlayerGameProfile>> remote, Function<K, PlayerGameProfile> partial) {
+        var distinct = new LinkedHashSet<>(keys);
+        var results = new ConcurrentHashMap<K, PlayerGameProfile>(distinct.size());
+        var misses = new ConcurrentLinkedQueue<K>();
+        for (K key : distinct) {
+            var hit = cached.apply(key);
+            if (hit != null) {
+                results.put(key, hit);
+            } else {
+                misses.add(key);
+            }
+        }
+
+        if (misses.isEmpty()) {
+            return CompletableFuture.completedFuture(ordered(distinct, results));
+        }
+
+        var batch = new BulkLookup<>(misses, results, remote, partial, new AtomicInteger(misses.size()), new CompletableFuture<>());
+        int workers = Math.min(AspectConfig.PLAYER_CACHE_BULK_CONCURRENCY.getInt(), misses.size());
+        for (int i = 0; i < workers; i++) {
+            resolveNext(batch);
+        }
+        return batch.done().thenApply(unused -> ordered(distinct, results));
+    }
+
+    private <K> void resolveNext(BulkLookup<K> batch) {
+        K key;
+        while ((key = batch.misses().poll()) != null) {
+            var future = batch.remote().apply(key);
+            if (!future.isDone()) {
+                var pendingKey = key;
+                future.whenComplete((profile, error) -> {
+                    if (batch.record(pendingKey, profile, error)) {
+                        resolveNext(batch);
+                    }
+                });
+                return;
+            }
+
+            // completed synchronously, keep going in this loop to avoid deep recursion
+            try {
+                batch.record(key, future.join(), null);
+            } catch (CompletionException e) {
+                batch.record(key, null, e.getCause());
+            }
+        }
+    }
+
+    private static <K> Map<K, PlayerGameProfile> ordered(Set<K> keys, Map<K, PlayerGameProfile> results) {
+        var map = new LinkedHashMap<K, PlayerGameProfile>(keys.size());
+        for (K key : keys) {
+            map.put(key, results.get(key));
+        }
+        return Collections.unmodifiableMap(map);
+    }
+
+    private record BulkLookup<K>(Queue<K> misses, Map<K, PlayerGameProfile> results, Function<K, CompletableFuture<PlayerGameProfile>> remote, Function<K, PlayerGameProfile> partial, AtomicInteger remaining, CompletableFuture<Void> done) {
+
+        /**
+         * @return whether more keys may still need to be resolved
+         */
+        boolean record(K key, @Nullable PlayerGameProfile profile, @Nullable Throwable error) {
+            if (error != null || profile == null) {
+                LOGGER.atWarning().withCause(error).log("Bulk profile lookup failed for %s", key);
+                profile = this.partial.apply(key);
+            }
+            this.results.put(key, profile);
+
+            if (this.remaining.decrementAndGet() == 0) {
+                this.done.complete(null);
+                return false;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Shares one remote lookup between all concurrent misses for the same key.
+     * Every caller gets its own copy of the result so completing or cancelling it does not affect the others.
+     */
+    private <K> CompletableFuture<PlayerGameProfile> singleFlight(ConcurrentMap<K, CompletableFuture<PlayerGameProfile>> inflight, K key, Function<K, CompletableFuture<PlayerGameProfile>> lookup) {
+        var promise = new CompletableFuture<PlayerGameProfile>();
+        var existing = inflight.putIfAbsent(key, promise);
+        if (existing != null) {
+            this.coalescedLookups.incrementAndGet();
+            return existing.copy();
+        }
+
+        this.remoteLookups.incrementAndGet();
+        var start = System.nanoTime();
+        try {
+            lookup.apply(key).whenComplete((profile, error) -> {
+                REMOTE_LOOKUP_NANOS.recordSince(start);
+                // remove before completing, later callers will find the result in the cache instead
+                inflight.remove(key, promise);
+                if (error != null) {
+                    promise.completeExceptionally(error);
+                } else {
+                    promise.complete(profile);
+                }
+            });
+        } catch (RuntimeException e) {
+            inflight.remove(key, promise);
+            promise.completeExceptionally(e);
+        }
+        return promise.copy();
+    }
+
+    public long getRemoteLookups() {
+        return this.remoteLookups.get();
+    }
+
+    public long getCoalescedLookups() {
+        return this.coalescedLookups.get();
+    }
+
+    public long getBackgroundRefreshes() {
+        return this.backgroundRefreshes.get();
+    }
+
     @Deprecated(forRemoval = true)
     public CompletableFuture<@Nullable UUID> getIdForUsername(String name) {
         return getProfileForUsername(name).thenApply(profile -> profile.id().orElse(null));
     }
 
     private @Nullable String readUsernameForId(UUID id) {
-        this.fileLock.readLock().lock();
-        try {
-            return this.cache.get(id);
-        } finally {
-            this.fileLock.readLock().unlock();
+        var entry = this.cache.get(id);
+        if (entry == null) {
+            MISSES.increment();
+            return null;
         }
+
+        HITS.increment();
+        refreshIfStale(id, entry);
+        return entry.name();
     }
 
     private @Nullable UUID readIdForUsername(String name) {
-        this.fileLock.readLock().lock();
+        var id = this.cache.getId(name);
+        (id != null ? HITS : MISSES).increment();
+        if (id != null) {
+            var entry = this.cache.get(id);
+            if (entry != null) {
+                refreshIfStale(id, entry);
+            }
+        }
+        return id;
+    }
+
+    /**
+     * Every write to the index goes through here so the completion index stays in step with it.
+     */
+    private void putEntry(UUID uuid, PlayerIndex.Entry entry) {
+        var previous = this.cache.put(uuid, entry);
+        if (this.completions != null) {
+            this.completions.update(previous != null ? previous.name() : null, entry.name());
+        }
+    }
+
+    private void clearEntries() {
+        this.cache.clear();
+        if (this.completions != null) {
+            this.completions.clear();
+        }
+    }
+
+    /**
+     * Case-insensitive username completion over all cached players, including offline ones.
+     *
+     * @return up to {@code limit} usernames starting with {@code prefix}, empty if the completion index is disabled, see {@link AspectConfig#PLAYER_CACHE_NAME_COMPLETION}
+     */
+    public List<String> completeUsername(String prefix, int limit) {
+        return this.completions != null ? this.completions.complete(prefix, limit) : List.of();
+    }
+
+    /**
+     * Like {@link #completeUsername(String, int)}, also matching usernames that start within {@code maxDistance} typos of {@code prefix}.
+     */
+    public List<String> completeUsernameFuzzy(String prefix, int limit, int maxDistance) {
+        return this.completions != null ? this.completions.completeFuzzy(prefix, limit, maxDistance) : List.of();
+    }
+
+    private void markDirty() {
+        this.markDirty(1);
+    }
+
+    private void markDirty(int changes) {
+        var dirty = this.dirtyEntries.addAndGet(changes);
+        if (!this.loaded.isDone()) {
+            // the load replays the journal, flushed once it finished
+            return;
+        }
+        var executor = this.persistence;
+        if (executor == null || !AspectConfig.PLAYER_CACHE_WRITE_BEHIND.getBoolean()) {
+            // on the caller's thread, which never waits for a flush or compaction in progress
+            this.flush(false);
+            return;
+        }
+
+        if (dirty >= AspectConfig.PLAYER_CACHE_FLUSH_MAX_DIRTY.getInt() && this.flushQueued.compareAndSet(false, true)) {
+            executor.execute(this::flush);
+        }
+    }
+
+    private List<PlayerCacheJournal.Upsert> drainPending() {
+        synchronized (this.pending) {
+            var batch = List.copyOf(this.pending);
+            this.pending.clear();
+            this.dirtyEntries.set(0);
+            return batch;
+        }
+    }
+
+    private void requeuePending(List<PlayerCacheJournal.Upsert> batch) {
+        synchronized (this.pending) {
+            this.pending.addAll(0, batch);
+            this.dirtyEntries.addAndGet(batch.size());
+        }
+    }
+
+    /**
+     * Appends all changes since the last flush to the journal, compacting it once it grows too large.
+     * Waits for a flush or compaction in progress.
+     */
+    public void flush() {
+        this.flush(true);
+    }
+
+    /**
+     * @param wait whether to wait for a flush or compaction in progress, otherwise the changes are left pending for it
+     */
+    private void flush(boolean wait) {
+        this.flushQueued.set(false);
+        if (!this.lockJournal(wait)) {
+            return;
+        }
         try {
-            return this.cache.inverse().get(name);
+            this.appendPending();
         } finally {
-            this.fileLock.readLock().unlock();
+            this.unlockJournal();
+        }
+
+        if (this.journal.size() >= AspectConfig.PLAYER_CACHE_JOURNAL_COMPACT_BYTES.getLong() && this.compactionQueued.compareAndSet(false, true)) {
+            var executor = this.persistence;
+            if (executor != null) {
+                executor.execute(this::compact);
+            } else if (wait) {
+                this.compact();
+            } else {
+                // a full snapshot is never written on the caller's thread
+                try {
+                    this.profileExecutor.execute(this::compact);
+                } catch (RejectedExecutionException e) {
+                    this.compactionQueued.set(false);
+                }
+            }
         }
     }
 
-    private boolean modify(Predicate<BiMap<UUID, String>> function) {
-        this.fileLock.writeLock().lock();
+    /**
+     * Callers that must not wait only try the lock, whoever holds it appends their changes before letting go.
+     *
+     * @return whether the lock was acquired
+     */
+    private boolean lockJournal(boolean wait) {
+        var waitStart = System.nanoTime();
+        if (wait) {
+            this.journalLock.lock();
+        } else {
+            this.flushRequested.set(true);
+            if (!this.journalLock.tryLock()) {
+                return false;
+            }
+        }
+        LOCK_WAIT_NANOS.recordSince(waitStart);
+        // everything pending up to here is appended by the holder
+        this.flushRequested.set(false);
+        return true;
+    }
+
+    private void unlockJournal() {
+        this.journalLock.unlock();
+        // checked after unlocking, a caller failing to get the lock from here on finds it free on its next try
+        while (this.flushRequested.get() && this.journalLock.tryLock()) {
+            try {
+                this.flushRequested.set(false);
+                this.appendPending();
+            } finally {
+                this.journalLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Requires the journal lock.
+     */
+    private void appendPending() {
+        var batch = this.drainPending();
+        if (batch.isEmpty()) {
+            this.flushesSkipped.incrementAndGet();
+            return;
+        }
 
-        boolean modified;
         try {
-            modified = function.test(this.cache);
+            var start = System.nanoTime();
+            this.journal.append(batch);
+            FLUSH_NANOS.recordSince(start);
+            this.flushesPerformed.incrementAndGet();
+        } catch (IOException e) {
+            this.requeuePending(batch);
+            LOGGER.atWarning().withCause(e).log("Unable to flush player cache, will retry on next flush");
+            return;
+        }
+        this.share(batch);
+    }
+
+    /**
+     * Writes a full snapshot of the cache, in the configured format, and truncates the journal.
+     *
+     * @return whether the snapshot was written, otherwise all changes are still pending
+     */
+    public boolean compact() {
+        this.compactionQueued.set(false);
+        if (!this.loadSucceeded) {
+            // never overwrite a snapshot that was not (successfully) read with an incomplete one
+            LOGGER.atWarning().log("Player cache was not loaded, skipping save");
+            return false;
+        }
+        this.lockJournal(true);
+        try {
+            // everything pending is already part of the in-memory cache and will be included in the snapshot
+            var batch = this.drainPending();
+            try {
+                var start = System.nanoTime();
+                if (this.cache instanceof SnapshotPlayerIndex index) {
+                    // also switches to the new snapshot, so the overlay only keeps what changed since
+                    index.compact(this.snapshotPath);
+                } else {
+                    super.syncSave();
+                }
+                SAVE_NANOS.recordSince(start);
+                this.journal.truncate();
+                this.compactions.incrementAndGet();
+            } catch (IOException | RuntimeException e) {
+                this.requeuePending(batch);
+                LOGGER.atWarning().withCause(e).log("Unable to compact player cache journal!");
+                return false;
+            }
+            this.share(batch);
+            return true;
         } finally {
-            this.fileLock.writeLock().unlock();
+            this.unlockJournal();
+        }
+    }
+
+    /**
+     * Publishes local changes to the other processes sharing the cache. They are already persisted locally,
+     * so a failure here only delays when the others learn about them.
+     */
+    private void share(List<PlayerCacheJournal.Upsert> batch) {
+        if (this.shared == null) {
+            return;
+        }
+
+        try {
+            this.shared.append(batch, this::applyShared, this.cache, AspectConfig.PLAYER_CACHE_SHARED_COMPACT_BYTES.getLong());
+        } catch (IOException | RuntimeException e) {
+            LOGGER.atWarning().withCause(e).log("Unable to publish %s player(s) to the shared player cache", batch.size());
+        }
+    }
+
+    /**
+     * Picks up changes made by the other processes sharing the cache.
+     */
+    public void pollShared() {
+        if (this.shared == null) {
+            return;
+        }
+
+        try {
+            this.shared.poll(this::applyShared);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.atWarning().withCause(e).log("Unable to read the shared player cache");
+        }
+    }
+
+    /**
+     * Shared records only live in memory here, the process that wrote them persists them.
+     * The most recently verified name wins, so replaying old records never undoes a newer local update.
+     */
+    private void applyShared(UUID uuid, PlayerIndex.Entry entry) {
+        synchronized (this.pending) {
+            var local = this.cache.get(uuid);
+            if (local != null && (local.lastVerified() > entry.lastVerified() || local.equals(entry))) {
+                return;
+            }
+            this.putEntry(uuid, local != null && local.lastSeen() > entry.lastSeen() ? new PlayerIndex.Entry(entry.name(), local.lastSeen(), entry.lastVerified()) : entry);
+        }
+        this.negativeIds.invalidate(uuid);
+        this.negativeUsernames.invalidate(entry.name());
+        SHARED_UPDATES.increment();
+    }
+
+    public void startPersistence() {
+        if (this.persistence != null) {
+            return;
+        }
+
+        var executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("Aspect PlayerCache Persistence").setDaemon(true).build());
+        if (AspectConfig.PLAYER_CACHE_WRITE_BEHIND.getBoolean()) {
+            var interval = AspectConfig.PLAYER_CACHE_FLUSH_INTERVAL_SECONDS.getLong();
+            executor.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.SECONDS);
+        }
+        if (this.shared != null) {
+            var interval = AspectConfig.PLAYER_CACHE_SHARED_POLL_MILLIS.getLong();
+            executor.scheduleWithFixedDelay(this::pollShared, interval, interval, TimeUnit.MILLISECONDS);
+        }
+        this.persistence = executor;
+    }
+
+    /**
+     * Stops background persistence and performs a final save. If no snapshot can be written, pending changes still go to the journal.
+     */
+    public void shutdown() {
+        var executor = this.persistence;
+        this.persistence = null;
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                    LOGGER.atWarning().log("Player cache persistence did not terminate in time");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
         }
 
-        if (modified) {
-            this.syncSave();
+        this.profileExecutor.shutdownNow();
+        if (!this.compact()) {
+            // the journal is still current, only what is pending has to be added to it
+            this.flush();
         }
+        this.cache.close();
+    }
+
+    /**
+     * Virtual-thread executor the cache uses for its own work on lookup results, never a world thread.
+     */
+    public Executor getProfileExecutor() {
+        return this.profileExecutor;
+    }
+
+    public PlayerIndex getIndex() {
+        return this.cache;
+    }
+
+    public long getFlushesPerformed() {
+        return this.flushesPerformed.get();
+    }
+
+    public long getFlushesSkipped() {
+        return this.flushesSkipped.get();
+    }
 
-        return modified;
+    public long getCompactions() {
+        return this.compactions.get();
+    }
+
+    public int getDirtyEntries() {
+        return this.dirtyEntries.get();
+    }
+
+    public long getJournalSize() {
+        return this.journal.size();
+    }
+
+    /**
+     * @return the size of the snapshot file in bytes, or {@code -1} if it does not exist (yet)
+     */
+    public long getFileSize() {
+        var file = this.path;
+        if (this.cache instanceof SnapshotPlayerIndex index) {
+            file = index.getSnapshot().getPath();
+            if (file == null) {
+                return -1;
+            }
+        }
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Saving the snapshot always goes through {@link #compact()}, so the journal never replays stale entries on top of it.
+     */
+    @Override
+    public void syncSave() {
+        this.compact();
+    }
+
+    /**
+     * Completes once the current load finished, successfully or not. Lookups made before that wait for it.
+     */
+    public CompletableFuture<Void> getLoadBarrier() {
+        return this.loaded.copy();
+    }
+
+    /**
+     * Makes lookups wait for the next {@link #syncLoad()}, call it before handing the load to another thread.
+     * Updates made in the meantime never wait, they are applied on top of the loaded data.
+     */
+    public CompletableFuture<Void> beginLoad() {
+        synchronized (this.pending) {
+            if (this.loaded.isDone()) {
+                this.loaded = new CompletableFuture<>();
+            }
+            return this.loaded.copy();
+        }
     }
 
     @Override
     public void syncLoad() {
-        if(!Options.getOptionSet().has(Options.BARE)) {
-            try {
-                Files.createDirectories(this.path.getParent());
-            } catch (IOException e) {
-                throw new UncheckedIOException("Unable to create save directory!", e);
+        this.beginLoad();
+        try {
+            // not parsed outside a running server, e.g. in benchmarks
+            var options = Options.getOptionSet();
+            if (options == null || !options.has(Options.BARE)) {
+                try {
+                    Files.createDirectories(this.path.getParent());
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Unable to create save directory!", e);
+                }
+            }
+            var snapshot = PlayerSnapshot.latest(this.snapshotPath);
+            if (snapshot != null && isNewer(snapshot, this.path)) {
+                this.loadSnapshot(snapshot);
+            } else {
+                // also imports the JSON file when switching to the binary format, the next compaction converts it
+                super.syncLoad();
+            }
+            this.loadSucceeded = !this.newerFormat;
+            // warm up from everything the other processes already know
+            this.pollShared();
+        } finally {
+            synchronized (this.pending) {
+                // loading replaced the cache, restore everything updated since the load began
+                for (PlayerCacheJournal.Upsert upsert : this.pending) {
+                    this.putEntry(upsert.uuid(), upsert.entry());
+                }
+                // a failed load still releases waiting lookups, they are answered from the (empty) cache
+                this.loaded.complete(null);
+            }
+        }
+        if (this.dirtyEntries.get() > 0) {
+            this.markDirty(0);
+        }
+
+        if (this.cache instanceof TieredPlayerIndex tiered) {
+            LOGGER.atInfo().log("Loaded %s players, %s of them in cold storage (~%s MiB heap saved)", tiered.size(), tiered.getColdSize(), tiered.getEstimatedHeapSavedBytes() >> 20);
+        }
+    }
+
+    /**
+     * Whichever format was written last is the current one, so switching formats never loads stale data.
+     */
+    private static boolean isNewer(Path snapshot, Path json) {
+        try {
+            return Files.exists(snapshot) && (!Files.exists(json) || Files.getLastModifiedTime(snapshot).compareTo(Files.getLastModifiedTime(json)) >= 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to compare player cache files!", e);
+        }
+    }
+
+    /**
+     * Maps the binary snapshot. In the binary format nothing is read up front, otherwise the snapshot is imported.
+     */
+    private void loadSnapshot(Path path) {
+        try {
+            var snapshot = PlayerSnapshot.open(path);
+            this.clearEntries();
+            if (this.cache instanceof SnapshotPlayerIndex index) {
+                index.load(snapshot);
+            } else {
+                try (snapshot) {
+                    snapshot.forEach(this::putEntry);
+                }
+            }
+            this.journal.replay(System.currentTimeMillis(), this::putEntry);
+
+            if (this.cache instanceof SnapshotPlayerIndex index && this.completions != null) {
+                // completion lags behind for a moment instead of delaying startup
+                this.profileExecutor.execute(() -> this.indexSnapshotNames(index, snapshot));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to load player cache snapshot!", e);
+        }
+    }
+
+    private void indexSnapshotNames(SnapshotPlayerIndex index, PlayerSnapshot snapshot) {
+        var completions = Objects.requireNonNull(this.completions);
+        var loadCount = index.getLoadCount();
+        int start = 0;
+        while (start < snapshot.size()) {
+            // in batches under the writer lock, so a concurrent rename can not resurrect the old name
+            synchronized (this.pending) {
+                try {
+                    if (index.getSnapshot() == snapshot) {
+                        for (int record = start; record < Math.min(start + SNAPSHOT_NAME_BATCH, snapshot.size()); record++) {
+                            if (!index.isShadowed(snapshot.idAt(record))) {
+                                completions.update(null, snapshot.nameAt(record));
+                            }
+                        }
+                        start += SNAPSHOT_NAME_BATCH;
+                        continue;
+                    }
+                } catch (IllegalStateException e) {
+                    // released by a compaction switching snapshots, handled below
+                    if (index.getSnapshot() == snapshot) {
+                        throw e;
+                    }
+                }
+            }
+            if (index.getLoadCount() != loadCount) {
+                // reloaded, which indexes the new snapshot on its own
+                return;
+            }
+            // a compaction rewrote the same entries into a new snapshot, start over on that one
+            snapshot = index.getSnapshot();
+            start = 0;
+        }
+    }
+
+    /**
+     * Writes all entries as JSON, in the same format as {@code playercache.json}.
+     */
+    public void exportJson(Path target) throws IOException {
+        try (var writer = Files.newBufferedWriter(target)) {
+            this.write(writer);
+        }
+    }
+
+    /**
+     * Merges all entries of a JSON file written by {@link #exportJson(Path)} into the cache, keeping their timestamps.
+     *
+     * @return the number of imported entries
+     */
+    public int importJson(Path source) throws IOException {
+        var imported = new ArrayList<PlayerCacheJournal.Upsert>();
+        try (var reader = Files.newBufferedReader(source)) {
+            var version = readJson(reader, System.currentTimeMillis(), (uuid, entry) -> imported.add(new PlayerCacheJournal.Upsert(uuid, entry)));
+            if (version > VERSION) {
+                throw new IOException("Unable to import %s, it was written by a newer version (format %s)".formatted(source, version));
+            }
+        }
+
+        synchronized (this.pending) {
+            for (PlayerCacheJournal.Upsert upsert : imported) {
+                this.putEntry(upsert.uuid(), upsert.entry());
+                this.pending.add(upsert);
             }
         }
-        super.syncLoad();
+        imported.forEach(upsert -> {
+            this.negativeIds.invalidate(upsert.uuid());
+            this.negativeUsernames.invalidate(upsert.entry().name());
+        });
+        this.markDirty(imported.size());
+        return imported.size();
     }
 
     @Override
     protected void read(BufferedReader var1) throws IOException {
-        this.cache.clear();
+        this.clearEntries();
+
+        // entries from older files carry no timestamps, treat them as verified now instead of refreshing all of them at once
+        var importTime = System.currentTimeMillis();
+        var version = readJson(var1, importTime, this::putEntry);
 
-        var json = JsonParser.parseReader(var1).getAsJsonObject();
-        var version = json.has("format_version") ? json.getAsJsonPrimitive("format_version").getAsInt() : 0;
-        if(version > VERSION) {
-            LOGGER.atSevere().log("Found unexpected player cache version %s, unable to parse. discarding data!!!", version);
+        if (version > VERSION) {
+            this.newerFormat = true;
+            LOGGER.atSevere().log("Player cache was written by a newer version (format %s), not loading it and never overwriting it!", version);
             return;
         }
 
+        // version 0 files have no journal, this is a no-op for them
+        this.journal.replay(importTime, this::putEntry);
+    }
+
+    /**
+     * Stops before reading any entry if the file has a newer format than {@link #VERSION}, {@code format_version} is written first.
+     *
+     * @return the format version of the file
+     */
+    private static int readJson(BufferedReader in, long importTime, BiConsumer<UUID, PlayerIndex.Entry> consumer) throws IOException {
+        int version = 0;
+        var reader = new JsonReader(in);
         try {
-            json.getAsJsonArray("values").forEach(jsonElement -> {
-                try {
-                    var playerJson = jsonElement.getAsJsonObject();
-                    var uuid = UUID.fromString(playerJson.getAsJsonPrimitive("uuid").getAsString());
-                    var name = playerJson.getAsJsonPrimitive("name").getAsString();
-                    this.cache.put(uuid, name);
-                } catch (Exception e) {
-                    LOGGER.atWarning().withCause(e).log("Serialization error: Unable to parse player cache entry!");
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "format_version" -> {
+                        version = reader.nextInt();
+                        if (version > VERSION) {
+                            return version;
+                        }
+                    }
+                    case "values" -> {
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            readEntry(reader, importTime, consumer);
+                        }
+                        reader.endArray();
+                    }
+                    default -> reader.skipValue();
                 }
-            });
-        } catch (Exception e) {
+            }
+            reader.endObject();
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
             throw new IOException("Unable to deserialize player cache!", e);
         }
+        return version;
+    }
+
+    /**
+     * Skips the entry if it is malformed, leaving the reader positioned after it.
+     */
+    private static void readEntry(JsonReader reader, long importTime, BiConsumer<UUID, PlayerIndex.Entry> consumer) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            LOGGER.atWarning().log("Serialization error: Unable to parse player cache entry, not an object!");
+            return;
+        }
+
+        @Nullable String uuid = null;
+        @Nullable String name = null;
+        @Nullable Long lastSeen = 0L;
+        @Nullable Long lastVerified = importTime;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "uuid" -> uuid = nextString(reader);
+                case "name" -> name = nextString(reader);
+                case "last_seen" -> lastSeen = nextLong(reader);
+                case "last_verified" -> lastVerified = nextLong(reader);
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (uuid == null || name == null || lastSeen == null || lastVerified == null) {
+            LOGGER.atWarning().log("Serialization error: Unable to parse player cache entry, missing or invalid uuid, name or timestamps!");
+            return;
+        }
+
+        try {
+            consumer.accept(UUID.fromString(uuid), new PlayerIndex.Entry(name, lastSeen, lastVerified));
+        } catch (IllegalArgumentException e) {
+            LOGGER.atWarning().withCause(e).log("Serialization error: Unable to parse player cache entry!");
+        }
+    }
+
+    private static @Nullable String nextString(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.STRING) {
+            return reader.nextString();
+        }
+        reader.skipValue();
+        return null;
+    }
+
+    private static @Nullable Long nextLong(JsonReader reader) throws IOException {
+        try {
+            return reader.nextLong();
+        } catch (IllegalStateException | NumberFormatException e) {
+            // not consumed when it fails
+            reader.skipValue();
+            return null;
+        }
+    }
+
+    private JsonWriter newJsonWriter(BufferedWriter writer) {
+        var json = new JsonWriter(writer);
+        if (!AspectConfig.PLAYER_CACHE_COMPACT_JSON.getBoolean()) {
+            json.setIndent("  ");
+        }
+        return json;
     }
 
     @Override
     protected void write(BufferedWriter writer) throws IOException {
-        var json = new JsonObject();
-        json.addProperty("format_version", VERSION);
-        var list = new JsonArray();
-        this.cache.forEach((uuid, name) -> {
-            var element = new JsonObject();
-            element.addProperty("uuid", uuid.toString());
-            element.addProperty("name", name);
-            list.add(element);
-        });
-        json.add("values", list);
-        GSON.toJson(json, writer);
+        // not closing the JsonWriter, the underlying writer is owned by BlockingDiskFile
+        var json = this.newJsonWriter(writer);
+        json.beginObject();
+        json.name("format_version").value(VERSION);
+        json.name("values").beginArray();
+        try {
+            this.cache.forEach((uuid, entry) -> {
+                try {
+                    json.beginObject();
+                    json.name("uuid").value(uuid.toString());
+                    json.name("name").value(entry.name());
+                    json.name("last_seen").value(entry.lastSeen());
+                    json.name("last_verified").value(entry.lastVerified());
+                    json.endObject();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        json.endArray();
+        json.endObject();
+        json.flush();
     }
 
     @Override
     protected void create(BufferedWriter writer) throws IOException {
-        var json = new JsonObject();
-        json.addProperty("format_version", VERSION);
-        json.add("values", new JsonArray());
-        GSON.toJson(json, writer);
+        var json = this.newJsonWriter(writer);
+        json.beginObject();
+        json.name("format_version").value(VERSION);
+        json.name("values").beginArray().endArray();
+        json.endObject();
+        json.flush();
     }
 }
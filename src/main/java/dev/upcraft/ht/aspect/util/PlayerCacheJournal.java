@@ -0,0 +1,95 @@
+package dev.upcraft.ht.aspect.util;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.hypixel.hytale.logger.HytaleLogger;
+import dev.upcraft.ht.aspect.util.cache.PlayerIndex;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+
+/**
+ * Append-only log of uuid→name upserts, replayed on top of the last player cache snapshot.
+ * <p>
+ * Each line is a standalone JSON object, so a torn write at the end of the file only loses that one entry.
+ */
+final class PlayerCacheJournal {
+
+    private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
+    private final Path path;
+    private long size;
+
+    PlayerCacheJournal(Path path) {
+        this.path = path;
+    }
+
+    public synchronized void append(List<Upsert> entries) throws IOException {
+        if (entries.isEmpty()) {
+            return;
+        }
+
+        var builder = new StringBuilder(entries.size() * 128);
+        for (Upsert entry : entries) {
+            var json = new JsonObject();
+            json.addProperty("uuid", entry.uuid().toString());
+            json.addProperty("name", entry.entry().name());
+            json.addProperty("last_seen", entry.entry().lastSeen());
+            json.addProperty("last_verified", entry.entry().lastVerified());
+            builder.append(json).append('\n');
+        }
+
+        var bytes = builder.toString().getBytes(StandardCharsets.UTF_8);
+        Files.write(this.path, bytes, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        this.size += bytes.length;
+    }
+
+    /**
+     * @param importTime used as the verification time for entries that do not carry one
+     */
+    public synchronized void replay(long importTime, BiConsumer<UUID, PlayerIndex.Entry> consumer) throws IOException {
+        this.size = 0;
+        try (var reader = Files.newBufferedReader(this.path, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+
+                try {
+                    var json = JsonParser.parseString(line).getAsJsonObject();
+                    var uuid = UUID.fromString(json.getAsJsonPrimitive("uuid").getAsString());
+                    var name = json.getAsJsonPrimitive("name").getAsString();
+                    var lastSeen = json.has("last_seen") ? json.getAsJsonPrimitive("last_seen").getAsLong() : 0L;
+                    var lastVerified = json.has("last_verified") ? json.getAsJsonPrimitive("last_verified").getAsLong() : importTime;
+                    consumer.accept(uuid, new PlayerIndex.Entry(name, lastSeen, lastVerified));
+                } catch (Exception e) {
+                    LOGGER.atWarning().withCause(e).log("Serialization error: Unable to parse player cache journal entry on line %s!", lineNumber);
+                }
+            }
+        } catch (NoSuchFileException e) {
+            return;
+        }
+        this.size = Files.size(this.path);
+    }
+
+    public synchronized void truncate() throws IOException {
+        Files.write(this.path, new byte[0], StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.size = 0;
+    }
+
+    public synchronized long size() {
+        return this.size;
+    }
+
+    public record Upsert(UUID uuid, PlayerIndex.Entry entry) {
+    }
+}
@@ -2,21 +2,156 @@ package dev.upcraft.ht.aspect.util;
 
 import com.hypixel.hytale.server.core.Message;
 import com.hypixel.hytale.server.core.console.ConsoleSender;
+import com.hypixel.hytale.server.core.universe.PlayerRef;
 import com.hypixel.hytale.server.core.universe.Universe;
+import dev.upcraft.ht.aspect.util.config.AspectConfig;
+import dev.upcraft.ht.aspect.util.metrics.Counter;
+import dev.upcraft.ht.aspect.util.metrics.Histogram;
+import dev.upcraft.ht.aspect.util.metrics.Metrics;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 public class PlayerHelper {
 
+    // time one world spends delivering a broadcast (or batch) to its players, and the number of messages sent
+    static final Histogram FANOUT_NANOS = Metrics.histogram("broadcast.fanout_nanos");
+    static final Counter MESSAGES_SENT = Metrics.counter("broadcast.messages_sent");
+    private static final HiddenPlayerIndex HIDDEN_PLAYERS = new HiddenPlayerIndex();
+    private static final BroadcastQueue BROADCAST_QUEUE = new BroadcastQueue(AspectConfig.BROADCAST_MERGE_DUPLICATES.getBoolean());
+
     public static void broadcastMessageToAllPlayers(Message message) {
         broadcastMessageToAllPlayers(message, null);
     }
 
     public static void broadcastMessageToAllPlayers(Message message, @Nullable UUID senderId) {
+        var start = System.nanoTime();
         Universe.get().getWorlds().values().stream().flatMap(world -> world.getPlayerRefs().stream())
                 .filter(playerRef -> senderId == null || !playerRef.getHiddenPlayersManager().isPlayerHidden(senderId))
-                .forEach(playerRef -> playerRef.sendMessage(message));
+                .forEach(playerRef -> {
+                    playerRef.sendMessage(message);
+                    MESSAGES_SENT.increment();
+                });
+        FANOUT_NANOS.recordSince(start);
         ConsoleSender.INSTANCE.sendMessage(message);
     }
+
+    /**
+     * Broadcasts on each world's own thread in parallel, sharing the same message instance between all recipients.
+     *
+     * @return a future completing once every world has delivered the message
+     */
+    public static CompletableFuture<Void> broadcastMessageToAllPlayersAsync(Message message, @Nullable UUID senderId) {
+        // resolved once up front, every world sees the same snapshot
+        var checkOnly = senderId != null ? viewersToCheck(senderId) : null;
+
+        var future = runOnEach(Universe.get().getWorlds().values(), world -> world, world -> sendToAll(world.getPlayerRefs(), senderId, checkOnly,
+                PlayerRef::getUuid, (playerRef, sender) -> playerRef.getHiddenPlayersManager().isPlayerHidden(sender), playerRef -> playerRef.sendMessage(message)));
+        ConsoleSender.INSTANCE.sendMessage(message);
+        return future;
+    }
+
+    /**
+     * Runs the task for every world on that world's executor. A world that rejects it, e.g. because it is shutting
+     * down, only fails its own part of the returned future.
+     */
+    public static <W> CompletableFuture<Void> runOnEach(Collection<W> worlds, Function<W, Executor> executor, Consumer<W> task) {
+        var futures = new ArrayList<CompletableFuture<Void>>(worlds.size());
+        for (W world : worlds) {
+            try {
+                futures.add(CompletableFuture.runAsync(() -> task.accept(world), executor.apply(world)));
+            } catch (RuntimeException e) {
+                futures.add(CompletableFuture.failedFuture(e));
+            }
+        }
+        return CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new));
+    }
+
+    /**
+     * Delivers a broadcast to the recipients of one world. Generic over the recipient so it can be benchmarked without a server.
+     *
+     * @param checkOnly if not {@code null}, only these recipients are checked for hiding the sender
+     */
+    public static <R> void sendToAll(Collection<R> recipients, @Nullable UUID senderId, @Nullable Set<UUID> checkOnly, Function<R, UUID> id, BiPredicate<R, UUID> hidesSender, Consumer<R> send) {
+        var start = System.nanoTime();
+        int sent = 0;
+        if (senderId == null || (checkOnly != null && checkOnly.isEmpty())) {
+            for (R recipient : recipients) {
+                send.accept(recipient);
+            }
+            sent = recipients.size();
+        } else {
+            for (R recipient : recipients) {
+                if ((checkOnly != null && !checkOnly.contains(id.apply(recipient))) || !hidesSender.test(recipient, senderId)) {
+                    send.accept(recipient);
+                    sent++;
+                }
+            }
+        }
+        MESSAGES_SENT.add(sent);
+        FANOUT_NANOS.recordSince(start);
+    }
+
+    /**
+     * @return the only viewers that can hide the sender, or {@code null} if every recipient has to be checked
+     */
+    static @Nullable Set<UUID> viewersToCheck(UUID senderId) {
+        // only safe if every hide goes through hidePlayer below, otherwise untracked hides would be ignored
+        return AspectConfig.BROADCAST_TRUST_HIDDEN_INDEX.getBoolean() ? Set.copyOf(HIDDEN_PLAYERS.getViewersHiding(senderId)) : null;
+    }
+
+    static boolean isHiddenFrom(PlayerRef viewer, UUID senderId, @Nullable Set<UUID> checkOnly) {
+        return (checkOnly == null || checkOnly.contains(viewer.getUuid())) && viewer.getHiddenPlayersManager().isPlayerHidden(senderId);
+    }
+
+    /**
+     * Queues a broadcast for the next batch, see {@link BroadcastQueue}.
+     */
+    public static void queueBroadcast(Message message, @Nullable UUID senderId) {
+        BROADCAST_QUEUE.enqueue(message, senderId);
+    }
+
+    /**
+     * @param audience only players matching it receive the message
+     */
+    public static void queueBroadcast(Message message, @Nullable UUID senderId, Predicate<PlayerRef> audience) {
+        BROADCAST_QUEUE.enqueue(message, senderId, audience);
+    }
+
+    public static BroadcastQueue getBroadcastQueue() {
+        return BROADCAST_QUEUE;
+    }
+
+    /**
+     * Hides a player from a viewer and records it in the hidden-player index used by broadcasts.
+     */
+    public static void hidePlayer(PlayerRef viewer, UUID target) {
+        viewer.getHiddenPlayersManager().hidePlayer(target);
+        HIDDEN_PLAYERS.hide(viewer.getUuid(), target);
+    }
+
+    public static void showPlayer(PlayerRef viewer, UUID target) {
+        viewer.getHiddenPlayersManager().showPlayer(target);
+        HIDDEN_PLAYERS.show(viewer.getUuid(), target);
+    }
+
+    /**
+     * Forgets what a disconnecting player hid, their {@code HiddenPlayersManager} goes away with them.
+     */
+    public static void onDisconnect(PlayerRef playerRef) {
+        HIDDEN_PLAYERS.removeViewer(playerRef.getUuid());
+    }
+
+    public static HiddenPlayerIndex getHiddenPlayerIndex() {
+        return HIDDEN_PLAYERS;
+    }
 }
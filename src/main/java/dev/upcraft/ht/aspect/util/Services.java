@@ -1,19 +1,199 @@
 package dev.upcraft.ht.aspect.util;
 
+import com.hypixel.hytale.logger.HytaleLogger;
 import com.hypixel.hytale.server.core.plugin.PluginManager;
+import org.jspecify.annotations.Nullable;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.ServiceLoader;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 public class Services {
 
+    private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
+    // discovery only loads provider classes, instances are created by the lazy providers on first use.
+    // cleared whenever the set of plugins changes, see invalidate()
+    private static final Map<Class<?>, List<LazyProvider<?>>> PROVIDERS = new ConcurrentHashMap<>();
+    private static final Map<Class<?>, Timing> TIMINGS = new ConcurrentHashMap<>();
+    // guards the creation state of all providers, and which provider each thread waits for, see LazyProvider#get
+    private static final Object CREATION_LOCK = new Object();
+    private static final Map<Thread, LazyProvider<?>> WAITING = new HashMap<>();
+
+    /**
+     * @return the first provider's instance, shared by all callers rather than created per call
+     */
     public static <T> T load(Class<T> serviceClass) {
-        return ServiceLoader.load(serviceClass, PluginManager.get().getBridgeClassLoader()).findFirst()
-                .orElseThrow(() -> new IllegalStateException("Unable to find service %s".formatted(serviceClass.getName())));
+        return loadLazy(serviceClass).get();
     }
 
+    /**
+     * @return the shared instances of all providers passing the filter
+     */
     public static <T> List<? extends T> loadAll(Class<T> serviceClass, Predicate<Class<? extends T>> filter) {
-        return ServiceLoader.load(serviceClass, PluginManager.get().getBridgeClassLoader()).stream().filter(provider -> filter.test(provider.type())).map(ServiceLoader.Provider::get).toList();
+        return loadAllLazy(serviceClass, filter).stream().map(Supplier::get).toList();
+    }
+
+    /**
+     * @return a supplier creating the first provider on first use, every call returns the same instance
+     */
+    public static <T> Supplier<T> loadLazy(Class<T> serviceClass) {
+        var providers = providers(serviceClass);
+        if (providers.isEmpty()) {
+            throw new IllegalStateException("Unable to find service %s".formatted(serviceClass.getName()));
+        }
+        return providers.getFirst();
+    }
+
+    public static <T> List<Supplier<? extends T>> loadAllLazy(Class<T> serviceClass, Predicate<Class<? extends T>> filter) {
+        return providers(serviceClass).stream().filter(provider -> filter.test(provider.type())).<Supplier<? extends T>>map(provider -> provider).toList();
+    }
+
+    /**
+     * Instantiates all providers of the given services in parallel, e.g. during plugin setup, and logs how long each service took.
+     * A provider may {@link #load(Class)} another service in its constructor, the dependency is created on demand or
+     * waited for if another thread is creating it. Providers that depend on each other in a cycle fail with an
+     * {@link IllegalStateException} instead of deadlocking.
+     */
+    public static void initializeAll(Collection<? extends Class<?>> serviceClasses) {
+        var start = System.nanoTime();
+        var futures = new ArrayList<CompletableFuture<Void>>(serviceClasses.size());
+        try (var executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("Aspect Service Init-", 0).factory())) {
+            for (Class<?> serviceClass : serviceClasses) {
+                futures.add(CompletableFuture.runAsync(() -> initialize(serviceClass), executor));
+            }
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+        } finally {
+            LOGGER.atInfo().log("Initialized %s service(s) in %s ms", serviceClasses.size(), Duration.ofNanos(System.nanoTime() - start).toMillis());
+            serviceClasses.forEach(serviceClass -> {
+                var timing = TIMINGS.get(serviceClass);
+                if (timing != null) {
+                    LOGGER.atInfo().log("  %s: %s provider(s), discovery %s ms, instantiation %s ms", serviceClass.getName(), timing.providers(), timing.discovery().toMillis(), timing.instantiation().toMillis());
+                }
+            });
+        }
+    }
+
+    private static void initialize(Class<?> serviceClass) {
+        var start = System.nanoTime();
+        var providers = providers(serviceClass);
+        var discovered = System.nanoTime();
+        providers.forEach(LazyProvider::get);
+        TIMINGS.put(serviceClass, new Timing(providers.size(), Duration.ofNanos(discovered - start), Duration.ofNanos(System.nanoTime() - discovered)));
+    }
+
+    /**
+     * @return timings of all services initialized through {@link #initializeAll(Collection)}
+     */
+    public static Map<Class<?>, Timing> getTimings() {
+        return Map.copyOf(TIMINGS);
+    }
+
+    /**
+     * Forgets all discovered providers, so the next lookup sees plugins that were loaded since and no longer holds on
+     * to the classes of unloaded ones. Suppliers handed out before keep their instance.
+     */
+    public static void invalidate() {
+        PROVIDERS.clear();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> List<LazyProvider<T>> providers(Class<T> serviceClass) {
+        return (List<LazyProvider<T>>) (List<?>) PROVIDERS.computeIfAbsent(serviceClass, Services::discover);
+    }
+
+    private static List<LazyProvider<?>> discover(Class<?> serviceClass) {
+        return ServiceLoader.load(serviceClass, PluginManager.get().getBridgeClassLoader()).stream()
+                .<LazyProvider<?>>map(LazyProvider::new)
+                .toList();
+    }
+
+    /**
+     * Creates the provider's instance once. Unlike a memoizing supplier it knows which thread is creating it, so a
+     * provider that (indirectly) loads itself fails with the dependency cycle instead of recursing or deadlocking.
+     */
+    static final class LazyProvider<T> implements Supplier<T> {
+
+        private final ServiceLoader.Provider<T> provider;
+        private volatile @Nullable T instance;
+        // guarded by CREATION_LOCK
+        private @Nullable Thread creator;
+
+        LazyProvider(ServiceLoader.Provider<T> provider) {
+            this.provider = provider;
+        }
+
+        Class<? extends T> type() {
+            return this.provider.type();
+        }
+
+        @Override
+        public T get() {
+            var instance = this.instance;
+            if (instance != null) {
+                return instance;
+            }
+
+            var current = Thread.currentThread();
+            synchronized (CREATION_LOCK) {
+                while (this.instance == null && this.creator != null) {
+                    this.checkCycle(current);
+                    WAITING.put(current, this);
+                    try {
+                        CREATION_LOCK.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IllegalStateException("Interrupted while waiting for service provider %s".formatted(this.type().getName()), e);
+                    } finally {
+                        WAITING.remove(current);
+                    }
+                }
+                if (this.instance != null) {
+                    return this.instance;
+                }
+                this.creator = current;
+            }
+
+            T created = null;
+            try {
+                created = this.provider.get();
+                return created;
+            } finally {
+                // a failed creation is retried by the next caller
+                synchronized (CREATION_LOCK) {
+                    this.instance = created;
+                    this.creator = null;
+                    CREATION_LOCK.notifyAll();
+                }
+            }
+        }
+
+        /**
+         * Follows the chain of creating threads and the providers they wait for, if it leads back to {@code current}
+         * waiting would never end.
+         */
+        private void checkCycle(Thread current) {
+            var chain = new ArrayList<String>();
+            LazyProvider<?> provider = this;
+            // a cycle not involving the current thread would have been detected by whoever closed it
+            while (provider != null && provider.creator != null && chain.size() <= WAITING.size()) {
+                chain.add(provider.type().getName());
+                if (provider.creator == current) {
+                    throw new IllegalStateException("Cyclic service provider dependency: %s".formatted(String.join(" -> ", chain)));
+                }
+                provider = WAITING.get(provider.creator);
+            }
+        }
+    }
+
+    public record Timing(int providers, Duration discovery, Duration instantiation) {
     }
 }
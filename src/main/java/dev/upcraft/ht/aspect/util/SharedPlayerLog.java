@@ -0,0 +1,262 @@
+package dev.upcraft.ht.aspect.util;
+
+import com.hypixel.hytale.logger.HytaleLogger;
+import dev.upcraft.ht.aspect.util.cache.PlayerIndex;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+import java.util.zip.CRC32;
+
+/**
+ * Binary log of uuid→name upserts shared by all server processes on one host.
+ * <p>
+ * Appends and rewrites are guarded by an OS file lock on a separate lock file, readers never lock: they read whatever
+ * was appended since their last poll, a chunk at a time, and stop at the first incomplete record. Every record carries a checksum, so a
+ * record torn by a crashed writer is detected and cut off by the next writer.
+ * <p>
+ * The header holds a generation that changes whenever the log is rewritten, readers then start over from the beginning.
+ * Layout: header {@code magic:4 version:4 generation:8}, records {@code length:4 msb:8 lsb:8 lastSeen:8 lastVerified:8 name crc32:4}.
+ */
+final class SharedPlayerLog {
+
+    private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
+    private static final int MAGIC = 0x4153504C; // ASPL
+    private static final int VERSION = 1;
+    private static final int HEADER = 16;
+    private static final int FIXED = 32;
+    private static final int MAX_NAME_BYTES = 1024;
+    private static final int MAX_RECORD = 8 + FIXED + MAX_NAME_BYTES;
+    private static final int CHUNK = 1 << 16;
+
+    private final Path path;
+    private final Path lockPath;
+    // reused by every poll and write, both are synchronized
+    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(CHUNK);
+    private final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(CHUNK);
+    private final CRC32 crc = new CRC32();
+    private long generation = -1;
+    private long offset = HEADER;
+
+    SharedPlayerLog(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        this.path = directory.resolve("playercache.shared");
+        this.lockPath = directory.resolve("playercache.shared.lock");
+    }
+
+    /**
+     * Reads everything appended by any process since the last poll.
+     *
+     * @return the number of records passed to {@code consumer}
+     */
+    public synchronized int poll(BiConsumer<UUID, PlayerIndex.Entry> consumer) throws IOException {
+        try (var channel = FileChannel.open(this.path, StandardOpenOption.READ)) {
+            var size = channel.size();
+            if (size < HEADER) {
+                return 0;
+            }
+
+            var header = ByteBuffer.allocate(HEADER);
+            channel.read(header, 0);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                throw new IOException("Not a shared player cache log: %s".formatted(this.path));
+            }
+            var generation = header.getLong(8);
+            if (generation != this.generation) {
+                // rewritten by another process, its contents replace everything read so far
+                this.generation = generation;
+                this.offset = HEADER;
+            }
+            if (size <= this.offset) {
+                return 0;
+            }
+
+            int records = 0;
+            var buffer = this.readBuffer;
+            while (this.offset < size) {
+                buffer.clear().limit((int) Math.min(CHUNK, size - this.offset));
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer, this.offset + buffer.position()) < 0) {
+                        break;
+                    }
+                }
+                buffer.flip();
+
+                while (buffer.remaining() >= 4) {
+                    int start = buffer.position();
+                    int length = buffer.getInt(start);
+                    if (length < FIXED || length > FIXED + MAX_NAME_BYTES || buffer.remaining() < 8 + length) {
+                        break;
+                    }
+
+                    this.crc.reset();
+                    this.crc.update(buffer.slice(start + 4, length));
+                    if ((int) this.crc.getValue() != buffer.getInt(start + 4 + length)) {
+                        // still being written, or torn
+                        break;
+                    }
+
+                    var id = new UUID(buffer.getLong(start + 4), buffer.getLong(start + 12));
+                    var name = new byte[length - FIXED];
+                    buffer.get(start + 4 + FIXED, name);
+                    consumer.accept(id, new PlayerIndex.Entry(new String(name, StandardCharsets.UTF_8), buffer.getLong(start + 20), buffer.getLong(start + 28)));
+                    buffer.position(start + 8 + length);
+                    records++;
+                }
+                if (buffer.position() == 0) {
+                    // the next record is incomplete, a chunk always holds a complete one
+                    break;
+                }
+                // a record cut off by the end of the chunk is read again with the next one
+                this.offset += buffer.position();
+            }
+            return records;
+        } catch (NoSuchFileException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Appends {@code entries} after catching up with other processes, passing their records to {@code consumer} first.
+     * Once the log grows past {@code compactBytes} it is rewritten from {@code source} instead.
+     *
+     * @param compactBytes {@code 0} to never rewrite
+     */
+    public synchronized void append(List<PlayerCacheJournal.Upsert> entries, BiConsumer<UUID, PlayerIndex.Entry> consumer, PlayerIndex source, long compactBytes) throws IOException {
+        if (entries.isEmpty()) {
+            return;
+        }
+
+        try (var lockChannel = FileChannel.open(this.lockPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            // held until the channel is closed
+            lockChannel.lock();
+            try (var channel = FileChannel.open(this.path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                if (channel.size() < HEADER) {
+                    channel.truncate(0);
+                    writeFully(channel, header(0), 0);
+                }
+            }
+
+            this.poll(consumer);
+            try (var channel = FileChannel.open(this.path, StandardOpenOption.WRITE)) {
+                if (channel.size() > this.offset) {
+                    // nobody else can be writing, so this is a torn record
+                    LOGGER.atWarning().log("Discarding %s bytes of incomplete records from the shared player cache", channel.size() - this.offset);
+                    channel.truncate(this.offset);
+                }
+
+                if (compactBytes > 0 && this.offset >= compactBytes) {
+                    // source already contains everything read above as well as the new entries
+                    this.rewrite(source);
+                    return;
+                }
+
+                var writer = new RecordWriter(channel, this.offset);
+                for (PlayerCacheJournal.Upsert upsert : entries) {
+                    writer.write(upsert.uuid(), upsert.entry());
+                }
+                this.offset = writer.flush();
+            }
+        }
+    }
+
+    private void rewrite(PlayerIndex source) throws IOException {
+        var generation = this.generation + 1;
+        var temp = this.path.resolveSibling(this.path.getFileName() + ".tmp");
+        long size;
+        int records;
+        try (var channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(channel, header(generation), 0);
+            var writer = new RecordWriter(channel, HEADER);
+            try {
+                source.forEach((id, entry) -> {
+                    try {
+                        writer.write(id, entry);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            size = writer.flush();
+            records = writer.records;
+            // durable before it replaces the log, the records it drops are only kept in here
+            channel.force(true);
+        }
+        Files.move(temp, this.path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        this.generation = generation;
+        this.offset = size;
+        LOGGER.atInfo().log("Compacted shared player cache to %s entries", records);
+    }
+
+    private static ByteBuffer header(long generation) {
+        return ByteBuffer.allocate(HEADER).putInt(MAGIC).putInt(VERSION).putLong(generation).flip();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    /**
+     * Encodes records into the write buffer, writing it out whenever it fills up, so the size of a batch never matters.
+     */
+    private final class RecordWriter {
+
+        private final FileChannel channel;
+        private long position;
+        private int records;
+
+        private RecordWriter(FileChannel channel, long position) {
+            this.channel = channel;
+            this.position = position;
+            SharedPlayerLog.this.writeBuffer.clear();
+        }
+
+        private void write(UUID id, PlayerIndex.Entry entry) throws IOException {
+            var name = entry.name().getBytes(StandardCharsets.UTF_8);
+            if (name.length > MAX_NAME_BYTES) {
+                return;
+            }
+
+            var buffer = SharedPlayerLog.this.writeBuffer;
+            if (buffer.remaining() < MAX_RECORD) {
+                this.flush();
+            }
+            int start = buffer.position();
+            buffer.putInt(FIXED + name.length)
+                    .putLong(id.getMostSignificantBits()).putLong(id.getLeastSignificantBits())
+                    .putLong(entry.lastSeen()).putLong(entry.lastVerified())
+                    .put(name);
+            var crc = SharedPlayerLog.this.crc;
+            crc.reset();
+            crc.update(buffer.slice(start + 4, FIXED + name.length));
+            buffer.putInt((int) crc.getValue());
+            this.records++;
+        }
+
+        /**
+         * @return the position right after the last record
+         */
+        private long flush() throws IOException {
+            var buffer = SharedPlayerLog.this.writeBuffer.flip();
+            int length = buffer.remaining();
+            writeFully(this.channel, buffer, this.position);
+            this.position += length;
+            buffer.clear();
+            return this.position;
+        }
+    }
+}
@@ -0,0 +1,442 @@
+package dev.upcraft.ht.aspect.util.cache;
+
+import org.jspecify.annotations.Nullable;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.BiConsumer;
+
+/**
+ * Allocation-light index storing entries in parallel primitive arrays.
+ * <p>
+ * UUIDs are kept as pairs of longs and usernames are packed as UTF-8 into a single byte pool. Two open-addressing
+ * tables of {@code int}s map uuids and case-folded usernames to entry positions, so an entry costs less than half the
+ * heap of a {@link ConcurrentPlayerIndex} entry.
+ * <p>
+ * Lookups use optimistic {@link StampedLock} reads and only fall back to a (short) read lock while a writer is active.
+ */
+public class CompactPlayerIndex implements PlayerIndex {
+
+    private static final int FREE = 0;
+    private static final int DELETED = -1;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final StampedLock lock = new StampedLock();
+
+    // dense entry storage, [0, size)
+    private long[] msb = new long[INITIAL_CAPACITY];
+    private long[] lsb = new long[INITIAL_CAPACITY];
+    private long[] lastSeen = new long[INITIAL_CAPACITY];
+    private long[] lastVerified = new long[INITIAL_CAPACITY];
+    private int[] nameOffset = new int[INITIAL_CAPACITY];
+    private short[] nameLength = new short[INITIAL_CAPACITY];
+    private int size;
+
+    private byte[] pool = new byte[INITIAL_CAPACITY * 16];
+    private int poolSize;
+    private int poolGarbage;
+
+    // hash tables holding entry position + 1
+    private int[] idTable = new int[INITIAL_CAPACITY * 2];
+    private int[] nameTable = new int[INITIAL_CAPACITY * 2];
+    private int tombstones;
+
+    @Override
+    public @Nullable Entry get(UUID id) {
+        long stamp = this.lock.tryOptimisticRead();
+        if (stamp != 0L) {
+            try {
+                var entry = this.readEntry(id);
+                if (this.lock.validate(stamp)) {
+                    return entry;
+                }
+            } catch (RuntimeException ignored) {
+                // torn read racing a writer, retry below
+            }
+        }
+
+        stamp = this.lock.readLock();
+        try {
+            return this.readEntry(id);
+        } finally {
+            this.lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public @Nullable UUID getId(String name) {
+        return this.lookupName(name, false);
+    }
+
+    /**
+     * Case-insensitive variant of {@link #getId(String)}, if several names only differ in case any of them may be returned.
+     */
+    public @Nullable UUID getIdIgnoreCase(String name) {
+        return this.lookupName(name, true);
+    }
+
+    private @Nullable UUID lookupName(String name, boolean ignoreCase) {
+        long stamp = this.lock.tryOptimisticRead();
+        if (stamp != 0L) {
+            try {
+                var position = this.findName(name, ignoreCase);
+                var id = position >= 0 ? new UUID(this.msb[position], this.lsb[position]) : null;
+                if (this.lock.validate(stamp)) {
+                    return id;
+                }
+            } catch (RuntimeException ignored) {
+                // torn read racing a writer, retry below
+            }
+        }
+
+        stamp = this.lock.readLock();
+        try {
+            var position = this.findName(name, ignoreCase);
+            return position >= 0 ? new UUID(this.msb[position], this.lsb[position]) : null;
+        } finally {
+            this.lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public @Nullable Entry put(UUID id, Entry entry) {
+        long stamp = this.lock.writeLock();
+        try {
+            var owner = this.findName(entry.name(), false);
+            if (owner >= 0 && (this.msb[owner] != id.getMostSignificantBits() || this.lsb[owner] != id.getLeastSignificantBits())) {
+                this.removeAt(owner);
+            }
+
+            var position = this.findId(id);
+            if (position >= 0) {
+                var previous = this.decode(position);
+                if (!previous.name().equals(entry.name())) {
+                    // grow first, a rebuild indexes the stored name and must not see the new one yet
+                    this.ensureCapacity(this.size + 1);
+                    removeSlot(this.nameTable, nameHash(previous.name()), position);
+                    this.tombstones++;
+                    this.poolGarbage += Short.toUnsignedInt(this.nameLength[position]);
+                    this.storeName(position, entry.name());
+                    insertSlot(this.nameTable, nameHash(entry.name()), position);
+                }
+                this.lastSeen[position] = entry.lastSeen();
+                this.lastVerified[position] = entry.lastVerified();
+                return previous;
+            }
+
+            this.ensureCapacity(this.size + 1);
+            position = this.size++;
+            this.msb[position] = id.getMostSignificantBits();
+            this.lsb[position] = id.getLeastSignificantBits();
+            this.lastSeen[position] = entry.lastSeen();
+            this.lastVerified[position] = entry.lastVerified();
+            this.storeName(position, entry.name());
+            insertSlot(this.idTable, idHash(id.getMostSignificantBits(), id.getLeastSignificantBits()), position);
+            insertSlot(this.nameTable, nameHash(entry.name()), position);
+            return null;
+        } finally {
+            this.lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public @Nullable Entry remove(UUID id) {
+        long stamp = this.lock.writeLock();
+        try {
+            var position = this.findId(id);
+            return position >= 0 ? this.removeAt(position) : null;
+        } finally {
+            this.lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void clear() {
+        long stamp = this.lock.writeLock();
+        try {
+            this.msb = new long[INITIAL_CAPACITY];
+            this.lsb = new long[INITIAL_CAPACITY];
+            this.lastSeen = new long[INITIAL_CAPACITY];
+            this.lastVerified = new long[INITIAL_CAPACITY];
+            this.nameOffset = new int[INITIAL_CAPACITY];
+            this.nameLength = new short[INITIAL_CAPACITY];
+            this.size = 0;
+            this.pool = new byte[INITIAL_CAPACITY * 16];
+            this.poolSize = 0;
+            this.poolGarbage = 0;
+            this.idTable = new int[INITIAL_CAPACITY * 2];
+            this.nameTable = new int[INITIAL_CAPACITY * 2];
+            this.tombstones = 0;
+        } finally {
+            this.lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public int size() {
+        long stamp = this.lock.tryOptimisticRead();
+        int size = this.size;
+        if (!this.lock.validate(stamp)) {
+            stamp = this.lock.readLock();
+            try {
+                size = this.size;
+            } finally {
+                this.lock.unlockRead(stamp);
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Iterates a copy taken under the read lock, so writers only wait for the copy and never for the consumer.
+     */
+    @Override
+    public void forEach(BiConsumer<UUID, Entry> consumer) {
+        long[] msb, lsb, lastSeen, lastVerified;
+        int[] nameOffset;
+        short[] nameLength;
+        byte[] pool;
+        int size;
+        long stamp = this.lock.readLock();
+        try {
+            size = this.size;
+            msb = Arrays.copyOf(this.msb, size);
+            lsb = Arrays.copyOf(this.lsb, size);
+            lastSeen = Arrays.copyOf(this.lastSeen, size);
+            lastVerified = Arrays.copyOf(this.lastVerified, size);
+            nameOffset = Arrays.copyOf(this.nameOffset, size);
+            nameLength = Arrays.copyOf(this.nameLength, size);
+            pool = Arrays.copyOf(this.pool, this.poolSize);
+        } finally {
+            this.lock.unlockRead(stamp);
+        }
+
+        for (int i = 0; i < size; i++) {
+            var name = new String(pool, nameOffset[i], Short.toUnsignedInt(nameLength[i]), StandardCharsets.UTF_8);
+            consumer.accept(new UUID(msb[i], lsb[i]), new Entry(name, lastSeen[i], lastVerified[i]));
+        }
+    }
+
+    private @Nullable Entry readEntry(UUID id) {
+        var position = this.findId(id);
+        return position >= 0 ? this.decode(position) : null;
+    }
+
+    private Entry decode(int position) {
+        return new Entry(new String(this.pool, this.nameOffset[position], Short.toUnsignedInt(this.nameLength[position]), StandardCharsets.UTF_8), this.lastSeen[position], this.lastVerified[position]);
+    }
+
+    private int findId(UUID id) {
+        long most = id.getMostSignificantBits();
+        long least = id.getLeastSignificantBits();
+        var table = this.idTable;
+        int mask = table.length - 1;
+        for (int i = idHash(most, least) & mask, probes = 0; probes < table.length; i = (i + 1) & mask, probes++) {
+            int value = table[i];
+            if (value == FREE) {
+                return -1;
+            }
+            if (value != DELETED && this.msb[value - 1] == most && this.lsb[value - 1] == least) {
+                return value - 1;
+            }
+        }
+        return -1;
+    }
+
+    private int findName(String name, boolean ignoreCase) {
+        var table = this.nameTable;
+        int mask = table.length - 1;
+        for (int i = nameHash(name) & mask, probes = 0; probes < table.length; i = (i + 1) & mask, probes++) {
+            int value = table[i];
+            if (value == FREE) {
+                return -1;
+            }
+            if (value != DELETED && this.nameMatches(value - 1, name, ignoreCase)) {
+                return value - 1;
+            }
+        }
+        return -1;
+    }
+
+    private boolean nameMatches(int position, String name, boolean ignoreCase) {
+        var pool = this.pool;
+        int offset = this.nameOffset[position];
+        int length = Short.toUnsignedInt(this.nameLength[position]);
+        if (length != name.length()) {
+            // may still match if the stored name is not plain ASCII
+            return length > name.length() && this.decodedNameMatches(position, name, ignoreCase);
+        }
+
+        for (int i = 0; i < length; i++) {
+            var b = pool[offset + i];
+            if (b < 0) {
+                return this.decodedNameMatches(position, name, ignoreCase);
+            }
+            var c = name.charAt(i);
+            if (b != c && (!ignoreCase || foldCase((char) b) != foldCase(c))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean decodedNameMatches(int position, String name, boolean ignoreCase) {
+        var stored = new String(this.pool, this.nameOffset[position], Short.toUnsignedInt(this.nameLength[position]), StandardCharsets.UTF_8);
+        return ignoreCase ? stored.equalsIgnoreCase(name) : stored.equals(name);
+    }
+
+    private Entry removeAt(int position) {
+        var previous = this.decode(position);
+        removeSlot(this.idTable, idHash(this.msb[position], this.lsb[position]), position);
+        removeSlot(this.nameTable, nameHash(previous.name()), position);
+        this.poolGarbage += Short.toUnsignedInt(this.nameLength[position]);
+        this.tombstones++;
+
+        // keep storage dense by moving the last entry into the freed position
+        int last = --this.size;
+        if (position != last) {
+            var lastName = new String(this.pool, this.nameOffset[last], Short.toUnsignedInt(this.nameLength[last]), StandardCharsets.UTF_8);
+            replaceSlot(this.idTable, idHash(this.msb[last], this.lsb[last]), last, position);
+            replaceSlot(this.nameTable, nameHash(lastName), last, position);
+            this.msb[position] = this.msb[last];
+            this.lsb[position] = this.lsb[last];
+            this.lastSeen[position] = this.lastSeen[last];
+            this.lastVerified[position] = this.lastVerified[last];
+            this.nameOffset[position] = this.nameOffset[last];
+            this.nameLength[position] = this.nameLength[last];
+        }
+
+        if (this.poolGarbage > this.poolSize / 2) {
+            this.compactPool();
+        }
+        return previous;
+    }
+
+    private void storeName(int position, String name) {
+        var bytes = name.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) {
+            throw new IllegalArgumentException("Username too long: %s bytes".formatted(bytes.length));
+        }
+
+        if (this.poolSize + bytes.length > this.pool.length) {
+            if (this.poolGarbage > this.poolSize / 2) {
+                this.compactPool();
+            }
+            if (this.poolSize + bytes.length > this.pool.length) {
+                this.pool = Arrays.copyOf(this.pool, Math.max(this.pool.length + (this.pool.length >> 1), this.poolSize + bytes.length));
+            }
+        }
+
+        System.arraycopy(bytes, 0, this.pool, this.poolSize, bytes.length);
+        this.nameOffset[position] = this.poolSize;
+        this.nameLength[position] = (short) bytes.length;
+        this.poolSize += bytes.length;
+    }
+
+    private void compactPool() {
+        // a fresh array, optimistic readers may still be looking at the old one
+        var compacted = new byte[Math.max(INITIAL_CAPACITY * 16, this.poolSize - this.poolGarbage + (this.poolSize >> 2))];
+        int used = 0;
+        for (int i = 0; i < this.size; i++) {
+            int length = Short.toUnsignedInt(this.nameLength[i]);
+            System.arraycopy(this.pool, this.nameOffset[i], compacted, used, length);
+            this.nameOffset[i] = used;
+            used += length;
+        }
+        this.pool = compacted;
+        this.poolSize = used;
+        this.poolGarbage = 0;
+    }
+
+    private void ensureCapacity(int required) {
+        if (required > this.msb.length) {
+            int capacity = Math.max(required, this.msb.length + (this.msb.length >> 1));
+            this.msb = Arrays.copyOf(this.msb, capacity);
+            this.lsb = Arrays.copyOf(this.lsb, capacity);
+            this.lastSeen = Arrays.copyOf(this.lastSeen, capacity);
+            this.lastVerified = Arrays.copyOf(this.lastVerified, capacity);
+            this.nameOffset = Arrays.copyOf(this.nameOffset, capacity);
+            this.nameLength = Arrays.copyOf(this.nameLength, capacity);
+        }
+
+        // keep both tables at most half full, counting tombstones
+        if ((required + this.tombstones) * 2L > this.idTable.length) {
+            int tableSize = Integer.highestOneBit(Math.max(INITIAL_CAPACITY, required) * 4 - 1);
+            this.rebuildTables(tableSize);
+        }
+    }
+
+    private void rebuildTables(int tableSize) {
+        var ids = new int[tableSize];
+        var names = new int[tableSize];
+        int mask = tableSize - 1;
+        for (int position = 0; position < this.size; position++) {
+            int i = idHash(this.msb[position], this.lsb[position]) & mask;
+            while (ids[i] != FREE) {
+                i = (i + 1) & mask;
+            }
+            ids[i] = position + 1;
+
+            var name = new String(this.pool, this.nameOffset[position], Short.toUnsignedInt(this.nameLength[position]), StandardCharsets.UTF_8);
+            i = nameHash(name) & mask;
+            while (names[i] != FREE) {
+                i = (i + 1) & mask;
+            }
+            names[i] = position + 1;
+        }
+        this.idTable = ids;
+        this.nameTable = names;
+        this.tombstones = 0;
+    }
+
+    private static void insertSlot(int[] table, int hash, int position) {
+        int mask = table.length - 1;
+        int i = hash & mask;
+        while (table[i] != FREE && table[i] != DELETED) {
+            i = (i + 1) & mask;
+        }
+        table[i] = position + 1;
+    }
+
+    private static void removeSlot(int[] table, int hash, int position) {
+        setSlot(table, hash, position, DELETED);
+    }
+
+    private static void replaceSlot(int[] table, int hash, int position, int replacement) {
+        setSlot(table, hash, position, replacement + 1);
+    }
+
+    private static void setSlot(int[] table, int hash, int position, int value) {
+        int mask = table.length - 1;
+        for (int i = hash & mask, probes = 0; probes < table.length && table[i] != FREE; i = (i + 1) & mask, probes++) {
+            if (table[i] == position + 1) {
+                table[i] = value;
+                return;
+            }
+        }
+    }
+
+    private static int idHash(long most, long least) {
+        long h = (most ^ least) * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * Case-insensitive, so {@link #getIdIgnoreCase(String)} can share the table with exact lookups.
+     */
+    private static int nameHash(String name) {
+        int h = 0;
+        for (int i = 0; i < name.length(); i++) {
+            h = 31 * h + foldCase(name.charAt(i));
+        }
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    // same folding as String#equalsIgnoreCase
+    private static char foldCase(char c) {
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+}
@@ -0,0 +1,69 @@
+package dev.upcraft.ht.aspect.util.cache;
+
+import org.jspecify.annotations.Nullable;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+
+/**
+ * Two {@link ConcurrentHashMap}s kept in step by serialized writers.
+ * <p>
+ * Readers are lock-free; a reader racing a rename may briefly see the new name in one direction only.
+ */
+public class ConcurrentPlayerIndex implements PlayerIndex {
+
+    private final Map<UUID, Entry> byId = new ConcurrentHashMap<>();
+    private final Map<String, UUID> byName = new ConcurrentHashMap<>();
+
+    @Override
+    public @Nullable Entry get(UUID id) {
+        return this.byId.get(id);
+    }
+
+    @Override
+    public @Nullable UUID getId(String name) {
+        return this.byName.get(name);
+    }
+
+    @Override
+    public synchronized @Nullable Entry put(UUID id, Entry entry) {
+        var name = entry.name();
+        var previousOwner = this.byName.put(name, id);
+        if (previousOwner != null && !previousOwner.equals(id)) {
+            this.byId.computeIfPresent(previousOwner, (owner, ownerEntry) -> name.equals(ownerEntry.name()) ? null : ownerEntry);
+        }
+
+        var previous = this.byId.put(id, entry);
+        if (previous != null && !previous.name().equals(name)) {
+            this.byName.remove(previous.name(), id);
+        }
+        return previous;
+    }
+
+    @Override
+    public synchronized @Nullable Entry remove(UUID id) {
+        var previous = this.byId.remove(id);
+        if (previous != null) {
+            this.byName.remove(previous.name(), id);
+        }
+        return previous;
+    }
+
+    @Override
+    public synchronized void clear() {
+        this.byId.clear();
+        this.byName.clear();
+    }
+
+    @Override
+    public int size() {
+        return this.byId.size();
+    }
+
+    @Override
+    public void forEach(BiConsumer<UUID, Entry> consumer) {
+        this.byId.forEach(consumer);
+    }
+}
@@ -0,0 +1,417 @@
+package dev.upcraft.ht.aspect.util.cache;
+
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Memory-mapped open-addressing hash tables, one keyed by uuid and one keyed by username hash.
+ * <p>
+ * This is scratch storage for entries evicted from the heap: the files are recreated when opened and the index is
+ * rebuilt from the player cache snapshot on every load. Only the OS page cache holds the data, not the Java heap.
+ */
+public class DiskPlayerIndex {
+
+    public static final int MAX_NAME_BYTES = 24;
+    private static final int ID_SLOT = 64;
+    private static final int NAME_SLOT = 24;
+    private static final int INITIAL_CAPACITY = 1 << 16;
+    // a single mapping is limited to 2GiB, this keeps the id table at 1GiB
+    private static final int MAX_CAPACITY = 1 << 24;
+    private static final byte EMPTY = 0;
+    private static final byte USED = 1;
+    private static final byte DELETED = 2;
+
+    private final Path basePath;
+    // serializes writers, a rehash builds the new table while holding only this
+    private final ReentrantLock writeLock = new ReentrantLock();
+    // held while a table is modified in place, readers validate against it instead of locking
+    private final StampedLock mutation = new StampedLock();
+    private volatile Table table;
+    private int generation;
+
+    public DiskPlayerIndex(Path path) throws IOException {
+        this.basePath = path;
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        this.table = this.newTable(INITIAL_CAPACITY);
+    }
+
+    public static boolean fits(String name) {
+        return name.length() <= MAX_NAME_BYTES && name.getBytes(StandardCharsets.UTF_8).length <= MAX_NAME_BYTES;
+    }
+
+    public PlayerIndex.@Nullable Entry get(UUID id) {
+        return this.read(() -> {
+            var table = this.table;
+            var slot = table.findId(id);
+            return slot >= 0 ? table.decode(slot) : null;
+        });
+    }
+
+    public @Nullable UUID getId(String name) {
+        return this.read(() -> this.table.findName(name));
+    }
+
+    /**
+     * Optimistic read, retried if a writer modified the table in the meantime. Never blocks, a rehash does not
+     * modify the table readers are looking at.
+     */
+    private <T extends @Nullable Object> T read(Supplier<T> reader) {
+        while (true) {
+            long stamp = this.mutation.tryOptimisticRead();
+            if (stamp != 0) {
+                T result = null;
+                RuntimeException failure = null;
+                try {
+                    result = reader.get();
+                } catch (RuntimeException e) {
+                    // may have seen a half-written slot
+                    failure = e;
+                }
+                if (this.mutation.validate(stamp)) {
+                    if (failure != null) {
+                        throw failure;
+                    }
+                    return result;
+                }
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * @return {@code false} if the entry can not be stored, either because the name is too long (see {@link #fits(String)}) or the index is full
+     */
+    public boolean put(UUID id, PlayerIndex.Entry entry) {
+        if (!fits(entry.name())) {
+            return false;
+        }
+
+        this.writeLock.lock();
+        try {
+            var owner = this.table.findName(entry.name());
+            if (owner != null && !owner.equals(id)) {
+                this.mutate(table -> table.remove(owner));
+            }
+
+            var slot = this.table.findId(id);
+            if (slot >= 0) {
+                this.mutate(table -> {
+                    var previous = table.decode(slot);
+                    table.writeId(slot, id, entry);
+                    if (!previous.name().equals(entry.name())) {
+                        table.removeName(previous.name(), id);
+                        table.insertName(entry.name(), id);
+                    }
+                    return null;
+                });
+                return true;
+            }
+
+            var table = this.table;
+            if ((table.size + Math.max(table.idTombstones, table.nameTombstones) + 1) * 10L > table.capacity * 6L) {
+                var grow = table.size * 4L > table.capacity && table.capacity < MAX_CAPACITY;
+                this.rehash(grow ? table.capacity << 1 : table.capacity);
+                if ((this.table.size + 1) * 10L > this.table.capacity * 6L) {
+                    // at maximum capacity, the caller keeps the entry on the heap instead
+                    return false;
+                }
+            }
+            this.mutate(current -> {
+                current.insertId(id, entry);
+                current.insertName(entry.name(), id);
+                current.size++;
+                return null;
+            });
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            this.writeLock.unlock();
+        }
+    }
+
+    public PlayerIndex.@Nullable Entry remove(UUID id) {
+        this.writeLock.lock();
+        try {
+            return this.mutate(table -> table.remove(id));
+        } finally {
+            this.writeLock.unlock();
+        }
+    }
+
+    /**
+     * Modifies the current table in place, the caller must hold the write lock.
+     */
+    private <T extends @Nullable Object> T mutate(Function<Table, T> mutation) {
+        long stamp = this.mutation.writeLock();
+        try {
+            return mutation.apply(this.table);
+        } finally {
+            this.mutation.unlockWrite(stamp);
+        }
+    }
+
+    public void clear() {
+        this.writeLock.lock();
+        try {
+            var old = this.table;
+            this.table = this.newTable(INITIAL_CAPACITY);
+            old.delete();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            this.writeLock.unlock();
+        }
+    }
+
+    public int size() {
+        return this.read(() -> this.table.size);
+    }
+
+    /**
+     * Weakly consistent, each slot is read on its own without blocking writers.
+     */
+    public void forEach(BiConsumer<UUID, PlayerIndex.Entry> consumer) {
+        var table = this.table;
+        for (int i = 0; i < table.capacity; i++) {
+            int slot = i;
+            var entry = this.read(() -> table.entryAt(slot));
+            if (entry != null) {
+                consumer.accept(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    public void close() throws IOException {
+        this.writeLock.lock();
+        try {
+            this.table.delete();
+        } finally {
+            this.writeLock.unlock();
+        }
+    }
+
+    /**
+     * Builds a new table next to the current one and publishes it, the current one is never modified.
+     */
+    private void rehash(int newCapacity) throws IOException {
+        var old = this.table;
+        var table = this.newTable(newCapacity);
+        old.forEach((id, entry) -> {
+            table.insertId(id, entry);
+            table.insertName(entry.name(), id);
+        });
+        table.size = old.size;
+        this.table = table;
+        old.delete();
+    }
+
+    private Table newTable(int capacity) throws IOException {
+        var generation = this.generation++;
+        var idPath = this.basePath.resolveSibling("%s.%s.ids".formatted(this.basePath.getFileName(), generation));
+        var namePath = this.basePath.resolveSibling("%s.%s.names".formatted(this.basePath.getFileName(), generation));
+        return new Table(capacity, idPath, map(idPath, (long) capacity * ID_SLOT), namePath, map(namePath, (long) capacity * NAME_SLOT));
+    }
+
+    private static MappedByteBuffer map(Path path, long length) throws IOException {
+        try (var channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            // mapping past the end grows the file, unwritten pages read back as EMPTY
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+        }
+    }
+
+    private static int hash(UUID id) {
+        long h = id.getMostSignificantBits() ^ id.getLeastSignificantBits();
+        h *= 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static int hash(String name) {
+        int h = name.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * One generation of the backing files. Id slots are laid out as
+     * {@code state:1 nameLength:1 pad:6 msb:8 lsb:8 lastSeen:8 lastVerified:8 name:24},
+     * name slots as {@code state:1 pad:3 nameHash:4 msb:8 lsb:8}.
+     */
+    private static final class Table {
+
+        private final int capacity;
+        private final Path idPath;
+        private final MappedByteBuffer ids;
+        private final Path namePath;
+        private final MappedByteBuffer names;
+        private int size;
+        private int idTombstones;
+        private int nameTombstones;
+
+        private Table(int capacity, Path idPath, MappedByteBuffer ids, Path namePath, MappedByteBuffer names) {
+            this.capacity = capacity;
+            this.idPath = idPath;
+            this.ids = ids;
+            this.namePath = namePath;
+            this.names = names;
+        }
+
+        int findId(UUID id) {
+            int mask = this.capacity - 1;
+            for (int i = hash(id) & mask, probes = 0; probes < this.capacity; i = (i + 1) & mask, probes++) {
+                int offset = i * ID_SLOT;
+                var state = this.ids.get(offset);
+                if (state == EMPTY) {
+                    return -1;
+                }
+                if (state == USED && this.ids.getLong(offset + 8) == id.getMostSignificantBits() && this.ids.getLong(offset + 16) == id.getLeastSignificantBits()) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        void insertId(UUID id, PlayerIndex.Entry entry) {
+            int mask = this.capacity - 1;
+            for (int i = hash(id) & mask; ; i = (i + 1) & mask) {
+                var state = this.ids.get(i * ID_SLOT);
+                if (state != USED) {
+                    if (state == DELETED) {
+                        this.idTombstones--;
+                    }
+                    this.writeId(i, id, entry);
+                    return;
+                }
+            }
+        }
+
+        void writeId(int slot, UUID id, PlayerIndex.Entry entry) {
+            int offset = slot * ID_SLOT;
+            var name = entry.name().getBytes(StandardCharsets.UTF_8);
+            this.ids.put(offset + 1, (byte) name.length)
+                    .putLong(offset + 8, id.getMostSignificantBits()).putLong(offset + 16, id.getLeastSignificantBits())
+                    .putLong(offset + 24, entry.lastSeen()).putLong(offset + 32, entry.lastVerified())
+                    .put(offset + 40, name)
+                    .put(offset, USED);
+        }
+
+        PlayerIndex.Entry decode(int slot) {
+            int offset = slot * ID_SLOT;
+            var name = new byte[this.ids.get(offset + 1)];
+            this.ids.get(offset + 40, name);
+            return new PlayerIndex.Entry(new String(name, StandardCharsets.UTF_8), this.ids.getLong(offset + 24), this.ids.getLong(offset + 32));
+        }
+
+        PlayerIndex.@Nullable Entry remove(UUID id) {
+            var slot = this.findId(id);
+            if (slot < 0) {
+                return null;
+            }
+
+            var previous = this.decode(slot);
+            this.ids.put(slot * ID_SLOT, DELETED);
+            this.idTombstones++;
+            this.removeName(previous.name(), id);
+            this.size--;
+            return previous;
+        }
+
+        @Nullable UUID findName(String name) {
+            int hash = hash(name);
+            int mask = this.capacity - 1;
+            for (int i = hash & mask, probes = 0; probes < this.capacity; i = (i + 1) & mask, probes++) {
+                int offset = i * NAME_SLOT;
+                var state = this.names.get(offset);
+                if (state == EMPTY) {
+                    return null;
+                }
+                if (state == USED && this.names.getInt(offset + 4) == hash) {
+                    var id = new UUID(this.names.getLong(offset + 8), this.names.getLong(offset + 16));
+                    var slot = this.findId(id);
+                    // hash collision, confirm against the stored name
+                    if (slot >= 0 && this.decode(slot).name().equals(name)) {
+                        return id;
+                    }
+                }
+            }
+            return null;
+        }
+
+        void insertName(String name, UUID id) {
+            int hash = hash(name);
+            int mask = this.capacity - 1;
+            for (int i = hash & mask; ; i = (i + 1) & mask) {
+                int offset = i * NAME_SLOT;
+                var state = this.names.get(offset);
+                if (state != USED) {
+                    if (state == DELETED) {
+                        this.nameTombstones--;
+                    }
+                    this.names.putInt(offset + 4, hash)
+                            .putLong(offset + 8, id.getMostSignificantBits()).putLong(offset + 16, id.getLeastSignificantBits())
+                            .put(offset, USED);
+                    return;
+                }
+            }
+        }
+
+        void removeName(String name, UUID id) {
+            int hash = hash(name);
+            int mask = this.capacity - 1;
+            for (int i = hash & mask, probes = 0; probes < this.capacity; i = (i + 1) & mask, probes++) {
+                int offset = i * NAME_SLOT;
+                var state = this.names.get(offset);
+                if (state == EMPTY) {
+                    return;
+                }
+                if (state == USED && this.names.getInt(offset + 4) == hash && this.names.getLong(offset + 8) == id.getMostSignificantBits() && this.names.getLong(offset + 16) == id.getLeastSignificantBits()) {
+                    this.names.put(offset, DELETED);
+                    this.nameTombstones++;
+                    return;
+                }
+            }
+        }
+
+        void forEach(BiConsumer<UUID, PlayerIndex.Entry> consumer) {
+            for (int i = 0; i < this.capacity; i++) {
+                var entry = this.entryAt(i);
+                if (entry != null) {
+                    consumer.accept(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+
+        Map.@Nullable Entry<UUID, PlayerIndex.Entry> entryAt(int slot) {
+            int offset = slot * ID_SLOT;
+            if (this.ids.get(offset) != USED) {
+                return null;
+            }
+            return Map.entry(new UUID(this.ids.getLong(offset + 8), this.ids.getLong(offset + 16)), this.decode(slot));
+        }
+
+        void delete() {
+            // the mapping itself is released once the buffer is garbage collected, this may fail on Windows until then
+            try {
+                Files.deleteIfExists(this.idPath);
+                Files.deleteIfExists(this.namePath);
+            } catch (IOException e) {
+                this.idPath.toFile().deleteOnExit();
+                this.namePath.toFile().deleteOnExit();
+            }
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package dev.upcraft.ht.aspect.util.cache;
+
+import com.hypixel.hytale.logger.HytaleLogger;
+import dev.upcraft.ht.aspect.api.auth.PlayerGameProfile;
+import dev.upcraft.ht.aspect.util.config.AspectConfig;
+import org.jspecify.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Protects a {@link ProfileSource} with a token-bucket rate limit, a cap on concurrent requests and a circuit breaker.
+ * <p>
+ * Lookups that are not allowed through fail immediately with a {@link RejectedExecutionException} instead of queueing,
+ * and while the circuit is open {@link #isAvailable()} reports {@code false} so callers can answer from the cache right away.
+ */
+public class GuardedProfileSource implements ProfileSource {
+
+    private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
+    private final ProfileSource delegate;
+    private final double permitsPerNano;
+    private final double burst;
+    private final Semaphore concurrency;
+    private final Duration timeout;
+    private final int failureThreshold;
+    private final long openNanos;
+
+    private double tokens;
+    private long lastRefill = System.nanoTime();
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean trialInFlight;
+
+    private final AtomicLong rateLimited = new AtomicLong();
+    private final AtomicLong concurrencyLimited = new AtomicLong();
+    private final AtomicLong circuitRejected = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    public GuardedProfileSource(ProfileSource delegate) {
+        this(delegate,
+                AspectConfig.PROFILE_LOOKUP_RATE.getDouble(),
+                AspectConfig.PROFILE_LOOKUP_BURST.getInt(),
+                AspectConfig.PROFILE_LOOKUP_MAX_CONCURRENT.getInt(),
+                Duration.ofMillis(AspectConfig.PROFILE_LOOKUP_TIMEOUT_MILLIS.getLong()),
+                AspectConfig.PROFILE_LOOKUP_FAILURE_THRESHOLD.getInt(),
+                Duration.ofSeconds(AspectConfig.PROFILE_LOOKUP_OPEN_SECONDS.getLong()));
+    }
+
+    /**
+     * @param permitsPerSecond sustained lookup rate
+     * @param burst            maximum number of lookups that can be made at once after an idle period
+     * @param maxConcurrent    maximum number of lookups in flight
+     * @param timeout          lookups taking longer than this fail and count towards the circuit breaker
+     * @param failureThreshold consecutive failures after which the circuit opens
+     * @param openDuration     time the circuit stays open before a single trial lookup is let through
+     */
+    public GuardedProfileSource(ProfileSource delegate, double permitsPerSecond, int burst, int maxConcurrent, Duration timeout, int failureThreshold, Duration openDuration) {
+        if (permitsPerSecond <= 0 || burst < 1 || maxConcurrent < 1 || failureThreshold < 1) {
+            throw new IllegalArgumentException("Profile lookup limits must be positive");
+        }
+        this.delegate = delegate;
+        this.permitsPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.burst = burst;
+        this.tokens = burst;
+        this.concurrency = new Semaphore(maxConcurrent);
+        this.timeout = timeout;
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openDuration.toNanos();
+    }
+
+    @Override
+    public boolean isAvailable() {
+        synchronized (this) {
+            if (this.state == State.OPEN && System.nanoTime() - this.openedAt < this.openNanos) {
+                return false;
+            }
+        }
+        return this.delegate.isAvailable();
+    }
+
+    @Override
+    public CompletableFuture<@Nullable PlayerGameProfile> lookupById(UUID id) {
+        return this.guard(() -> this.delegate.lookupById(id));
+    }
+
+    @Override
+    public CompletableFuture<@Nullable PlayerGameProfile> lookupByUsername(String name) {
+        return this.guard(() -> this.delegate.lookupByUsername(name));
+    }
+
+    private CompletableFuture<@Nullable PlayerGameProfile> guard(Supplier<CompletableFuture<@Nullable PlayerGameProfile>> lookup) {
+        var rejection = this.admit();
+        if (rejection != null) {
+            return CompletableFuture.failedFuture(new RejectedExecutionException(rejection));
+        }
+
+        CompletableFuture<@Nullable PlayerGameProfile> future;
+        try {
+            future = lookup.get().orTimeout(this.timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (RuntimeException e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        return future.whenComplete((profile, error) -> {
+            this.concurrency.release();
+            this.onResult(error == null);
+        });
+    }
+
+    /**
+     * @return the reason the lookup was rejected, or {@code null} if it may proceed and holds a concurrency permit
+     */
+    private @Nullable String admit() {
+        synchronized (this) {
+            var now = System.nanoTime();
+            if (this.state == State.OPEN) {
+                if (now - this.openedAt < this.openNanos || this.trialInFlight) {
+                    this.circuitRejected.incrementAndGet();
+                    return "Profile lookup circuit is open";
+                }
+                // half-open: the next admitted lookup decides whether the circuit closes again
+                this.trialInFlight = true;
+            }
+
+            this.tokens = Math.min(this.burst, this.tokens + (now - this.lastRefill) * this.permitsPerNano);
+            this.lastRefill = now;
+            if (this.tokens < 1) {
+                this.trialInFlight = false;
+                this.rateLimited.incrementAndGet();
+                return "Profile lookup rate limit exceeded";
+            }
+            if (!this.concurrency.tryAcquire()) {
+                this.trialInFlight = false;
+                this.concurrencyLimited.incrementAndGet();
+                return "Too many concurrent profile lookups";
+            }
+            this.tokens--;
+            return null;
+        }
+    }
+
+    private void onResult(boolean success) {
+        if (!success) {
+            this.failures.incrementAndGet();
+        }
+
+        synchronized (this) {
+            if (success) {
+                if (this.state == State.OPEN) {
+                    LOGGER.atInfo().log("Profile service recovered, resuming lookups");
+                }
+                this.state = State.CLOSED;
+                this.consecutiveFailures = 0;
+                this.trialInFlight = false;
+                return;
+            }
+
+            this.consecutiveFailures++;
+            if (this.state == State.OPEN ? this.trialInFlight : this.consecutiveFailures >= this.failureThreshold) {
+                if (this.state == State.CLOSED) {
+                    LOGGER.atWarning().log("Profile service failed %s times in a row, pausing lookups for %s", this.consecutiveFailures, Duration.ofNanos(this.openNanos));
+                }
+                this.state = State.OPEN;
+                this.openedAt = System.nanoTime();
+                this.trialInFlight = false;
+            }
+        }
+    }
+
+    public synchronized boolean isCircuitOpen() {
+        return this.state == State.OPEN;
+    }
+
+    public long getRateLimited() {
+        return this.rateLimited.get();
+    }
+
+    public long getConcurrencyLimited() {
+        return this.concurrencyLimited.get();
+    }
+
+    public long getCircuitRejected() {
+        return this.circuitRejected.get();
+    }
+
+    public long getFailures() {
+        return this.failures.get();
+    }
+
+    private enum State {
+        CLOSED,
+        OPEN
+    }
+}
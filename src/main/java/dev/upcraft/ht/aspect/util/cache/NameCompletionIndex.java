@@ -0,0 +1,194 @@
+package dev.upcraft.ht.aspect.util.cache;
+
+import org.jspecify.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Case-insensitive, sorted set of usernames for tab completion.
+ * <p>
+ * Names are stored as {@code <case-folded name>\0<name>}, so all names starting with a prefix form one contiguous
+ * range that is found in {@code O(log n)}. Reads are lock-free and never block the writer.
+ * <p>
+ * The fuzzy mode walks the same sorted set like a trie: edit distance rows are shared between neighbouring names
+ * and whole ranges of names whose common prefix is already too far from the query are skipped.
+ */
+public class NameCompletionIndex {
+
+    private static final char SEPARATOR = '\0';
+    private static final char MAX_CHAR = Character.MAX_VALUE;
+
+    private final NavigableSet<String> names = new ConcurrentSkipListSet<>();
+
+    /**
+     * Mirrors a {@link PlayerIndex#put(java.util.UUID, PlayerIndex.Entry)}, a name taken over from another player stays indexed.
+     *
+     * @param previousName the name the player had before, if any
+     */
+    public void update(@Nullable String previousName, String name) {
+        if (previousName != null && !previousName.equals(name)) {
+            this.names.remove(key(previousName));
+        }
+        this.names.add(key(name));
+    }
+
+    public void remove(String name) {
+        this.names.remove(key(name));
+    }
+
+    public void clear() {
+        this.names.clear();
+    }
+
+    public int size() {
+        return this.names.size();
+    }
+
+    /**
+     * @return up to {@code limit} names starting with {@code prefix} ignoring case, in case-insensitive alphabetical order
+     */
+    public List<String> complete(String prefix, int limit) {
+        if (limit <= 0) {
+            return List.of();
+        }
+
+        var folded = fold(prefix);
+        var results = new ArrayList<String>(Math.min(limit, 16));
+        for (String key : this.names.subSet(folded, true, folded + MAX_CHAR, false)) {
+            if (results.size() >= limit) {
+                break;
+            }
+            results.add(name(key));
+        }
+        return results;
+    }
+
+    /**
+     * Like {@link #complete(String, int)}, additionally matching names that start with something within
+     * {@code maxDistance} edits (insertions, deletions, substitutions) of {@code prefix}. Exact prefix matches come first.
+     */
+    public List<String> completeFuzzy(String prefix, int limit, int maxDistance) {
+        var results = new LinkedHashSet<>(this.complete(prefix, limit));
+        if (maxDistance <= 0 || results.size() >= limit) {
+            return List.copyOf(results);
+        }
+
+        var query = fold(prefix);
+        int columns = query.length() + 1;
+        // every character that is not part of the query produces the same edit distance row
+        var queryChars = query.chars().distinct().sorted().toArray();
+        // rows[i] holds the edit distances between the first i characters of the current name and every prefix of the query
+        var rows = new int[17][columns];
+        for (int j = 0; j < columns; j++) {
+            rows[0][j] = j;
+        }
+        var previous = "";
+        int previousLength = 0;
+        int validRows = 1;
+
+        var key = this.names.isEmpty() ? null : this.names.first();
+        while (key != null && results.size() < limit) {
+            // the case-folded name is the part before the separator, compared in place to avoid copying it
+            int length = key.indexOf(SEPARATOR);
+            validRows = Math.min(validRows, commonPrefixLength(previous, previousLength, key, length) + 1);
+            if (rows.length <= length) {
+                var grown = new int[length + 1][];
+                System.arraycopy(rows, 0, grown, 0, rows.length);
+                for (int i = rows.length; i < grown.length; i++) {
+                    grown[i] = new int[columns];
+                }
+                rows = grown;
+            }
+
+            int pruneAt = -1;
+            boolean matched = rows[0][query.length()] <= maxDistance;
+            for (int i = 1; i <= length && !matched; i++) {
+                if (i >= validRows) {
+                    nextRow(rows[i - 1], rows[i], key.charAt(i - 1), query);
+                    validRows = i + 1;
+                }
+                if (rows[i][query.length()] <= maxDistance) {
+                    matched = true;
+                } else if (min(rows[i]) > maxDistance) {
+                    pruneAt = i;
+                    break;
+                }
+            }
+            previous = key;
+            previousLength = length;
+
+            if (matched) {
+                results.add(name(key));
+            }
+            if (pruneAt > 0) {
+                // no name sharing the first pruneAt characters can get closer, skip past all of them and past any
+                // sibling whose last character is not in the query either, it would be pruned the same way
+                var parent = key.substring(0, pruneAt - 1);
+                var next = nextQueryChar(queryChars, key.charAt(pruneAt - 1));
+                key = this.names.ceiling(parent + next);
+            } else {
+                key = this.names.higher(key);
+            }
+        }
+        return List.copyOf(results);
+    }
+
+    /**
+     * @return the character the next potentially matching sibling of {@code c} may start with
+     */
+    private static char nextQueryChar(int[] queryChars, char c) {
+        for (int queryChar : queryChars) {
+            if (queryChar > c) {
+                return (char) queryChar;
+            }
+        }
+        return MAX_CHAR;
+    }
+
+    private static void nextRow(int[] previous, int[] row, char c, String query) {
+        row[0] = previous[0] + 1;
+        for (int j = 1; j < row.length; j++) {
+            int substitution = previous[j - 1] + (query.charAt(j - 1) == c ? 0 : 1);
+            row[j] = Math.min(substitution, Math.min(previous[j] + 1, row[j - 1] + 1));
+        }
+    }
+
+    private static int min(int[] row) {
+        int min = row[0];
+        for (int value : row) {
+            min = Math.min(min, value);
+        }
+        return min;
+    }
+
+    private static int commonPrefixLength(String a, int aLength, String b, int bLength) {
+        int length = Math.min(aLength, bLength);
+        for (int i = 0; i < length; i++) {
+            if (a.charAt(i) != b.charAt(i)) {
+                return i;
+            }
+        }
+        return length;
+    }
+
+    private static String key(String name) {
+        return fold(name) + SEPARATOR + name;
+    }
+
+    private static String name(String key) {
+        return key.substring(key.indexOf(SEPARATOR) + 1);
+    }
+
+    // same folding as String#equalsIgnoreCase and CompactPlayerIndex
+    private static String fold(String name) {
+        var chars = new char[name.length()];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(Character.toUpperCase(name.charAt(i)));
+        }
+        return new String(chars);
+    }
+}
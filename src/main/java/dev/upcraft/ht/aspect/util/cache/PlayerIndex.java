@@ -0,0 +1,57 @@
+package dev.upcraft.ht.aspect.util.cache;
+
+import org.jspecify.annotations.Nullable;
+
+import java.util.UUID;
+import java.util.function.BiConsumer;
+
+/**
+ * Bidirectional uuid↔username mapping backing the {@link dev.upcraft.ht.aspect.util.PlayerCache}.
+ * <p>
+ * Lookups must never block on writers or on persistence.
+ */
+public interface PlayerIndex {
+
+    @Nullable Entry get(UUID id);
+
+    default @Nullable String getName(UUID id) {
+        var entry = this.get(id);
+        return entry != null ? entry.name() : null;
+    }
+
+    @Nullable UUID getId(String name);
+
+    /**
+     * Binds {@code entry.name()} to {@code id}, unbinding it from any other id that previously held it.
+     *
+     * @return the entry previously stored for {@code id}
+     */
+    @Nullable Entry put(UUID id, Entry entry);
+
+    /**
+     * @return the entry previously stored for {@code id}
+     */
+    @Nullable Entry remove(UUID id);
+
+    void clear();
+
+    int size();
+
+    /**
+     * Weakly consistent iteration, concurrent writes may or may not be visible.
+     */
+    void forEach(BiConsumer<UUID, Entry> consumer);
+
+    /**
+     * Releases any resources held outside the heap.
+     */
+    default void close() {
+    }
+
+    /**
+     * @param lastSeen     epoch millis of the last time the player was seen on this server, {@code 0} if never
+     * @param lastVerified epoch millis of the last time the name was confirmed by an authoritative source
+     */
+    record Entry(String name, long lastSeen, long lastVerified) {
+    }
+}
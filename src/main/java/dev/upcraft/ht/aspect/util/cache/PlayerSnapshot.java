@@ -0,0 +1,359 @@
+package dev.upcraft.ht.aspect.util.cache;
+
+import org.jspecify.annotations.Nullable;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+
+/**
+ * Read-only, memory-mapped binary snapshot of the player cache, queried in place.
+ * <p>
+ * Opening a snapshot only maps the file, its size does not matter. Entries become heap objects when they are looked up,
+ * never before. The mapping is released by {@link #close()}, lookups made afterwards fail with an
+ * {@link IllegalStateException}.
+ * <p>
+ * A snapshot is stored in one of two {@link #files(Path) files}, each write goes to the one not holding the latest
+ * snapshot. The latest one is the one that may still be mapped, and a mapped file can not be replaced on every platform.
+ * The layout (big-endian) is
+ * <ul>
+ *     <li>header: {@code magic:4 version:4 count:4 pad:4 poolOffset:8 generation:8}</li>
+ *     <li>{@code count} records sorted by uuid: {@code msb:8 lsb:8 lastSeen:8 lastVerified:8 nameOffset:4 nameLength:2 pad:2}</li>
+ *     <li>{@code count} name slots sorted by name hash: {@code hash:4 record:4}</li>
+ *     <li>the UTF-8 name pool, {@code nameOffset} is relative to its start</li>
+ * </ul>
+ */
+public final class PlayerSnapshot implements AutoCloseable {
+
+    private static final int MAGIC = 0x41535053; // ASPS
+    private static final int VERSION = 1;
+    private static final int HEADER = 32;
+    private static final int RECORD = 40;
+    private static final int NAME_SLOT = 8;
+    private static final PlayerSnapshot EMPTY = new PlayerSnapshot(ByteBuffer.allocate(HEADER), 0, HEADER, null, null);
+
+    private final ByteBuffer buffer;
+    private final int count;
+    private final int poolOffset;
+    private final @Nullable Path path;
+    private final @Nullable Arena arena;
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    private PlayerSnapshot(ByteBuffer buffer, int count, int poolOffset, @Nullable Path path, @Nullable Arena arena) {
+        this.buffer = buffer;
+        this.count = count;
+        this.poolOffset = poolOffset;
+        this.path = path;
+        this.arena = arena;
+    }
+
+    public static PlayerSnapshot empty() {
+        return EMPTY;
+    }
+
+    /**
+     * @return the two files a snapshot at {@code path} may be stored in
+     */
+    public static List<Path> files(Path path) {
+        return List.of(path, path.resolveSibling(path.getFileName() + ".1"));
+    }
+
+    /**
+     * @return whichever of the {@link #files(Path)} holds the most recently written snapshot, or {@code null} if neither does
+     */
+    public static @Nullable Path latest(Path path) {
+        Path latest = null;
+        long latestGeneration = -1;
+        for (Path file : files(path)) {
+            long generation = readGeneration(file);
+            if (generation > latestGeneration) {
+                latest = file;
+                latestGeneration = generation;
+            }
+        }
+        return latest;
+    }
+
+    /**
+     * @return the generation in the file's header, or {@code -1} if it is missing or not a snapshot
+     */
+    private static long readGeneration(Path file) {
+        if (!Files.isRegularFile(file)) {
+            return -1;
+        }
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            var header = ByteBuffer.allocate(HEADER);
+            while (header.hasRemaining()) {
+                if (channel.read(header) < 0) {
+                    return -1;
+                }
+            }
+            return header.getInt(0) == MAGIC ? header.getLong(24) : -1;
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    public static PlayerSnapshot open(Path path) throws IOException {
+        var arena = Arena.ofShared();
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            var size = channel.size();
+            if (size < HEADER || size > Integer.MAX_VALUE) {
+                throw new IOException("Invalid player snapshot size %s in %s".formatted(size, path));
+            }
+
+            // the mapping stays valid after the channel is closed, until the arena is
+            var buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size, arena).asByteBuffer();
+            if (buffer.getInt(0) != MAGIC) {
+                throw new IOException("Not a player snapshot: %s".formatted(path));
+            }
+            if (buffer.getInt(4) != VERSION) {
+                throw new IOException("Unsupported player snapshot version %s in %s".formatted(buffer.getInt(4), path));
+            }
+
+            int count = buffer.getInt(8);
+            long poolOffset = buffer.getLong(16);
+            if (count < 0 || poolOffset != HEADER + (long) count * (RECORD + NAME_SLOT) || poolOffset > size) {
+                throw new IOException("Corrupt player snapshot: %s".formatted(path));
+            }
+            return new PlayerSnapshot(buffer, count, (int) poolOffset, path, arena);
+        } catch (IOException | RuntimeException e) {
+            arena.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Writes all entries of {@code source} to a new snapshot at {@code path}, into the file not holding the latest one.
+     *
+     * @return the file that was written
+     */
+    public static Path write(Path path, PlayerIndex source) throws IOException {
+        var latest = latest(path);
+        var target = files(path).stream().filter(file -> !file.equals(latest)).findFirst().orElseThrow();
+        write(target, source, latest != null ? readGeneration(latest) + 1 : 1);
+        return target;
+    }
+
+    /**
+     * Writes all entries of {@code source} to a new snapshot, atomically replacing {@code path}.
+     */
+    private static void write(Path path, PlayerIndex source, long generation) throws IOException {
+        var rows = new ArrayList<Map.Entry<UUID, PlayerIndex.Entry>>(source.size());
+        source.forEach((id, entry) -> rows.add(Map.entry(id, entry)));
+        // same order as find(), signed msb then signed lsb
+        rows.sort(Map.Entry.comparingByKey());
+        // weakly consistent sources may pass an entry twice, the sort is stable so the last one passed wins
+        int unique = 0;
+        for (int i = 0; i < rows.size(); i++) {
+            if (unique > 0 && rows.get(unique - 1).getKey().equals(rows.get(i).getKey())) {
+                rows.set(unique - 1, rows.get(i));
+            } else {
+                rows.set(unique++, rows.get(i));
+            }
+        }
+        rows.subList(unique, rows.size()).clear();
+
+        int count = rows.size();
+        var names = new byte[count][];
+        var nameOffsets = new int[count];
+        long poolSize = 0;
+        for (int record = 0; record < count; record++) {
+            names[record] = rows.get(record).getValue().name().getBytes(StandardCharsets.UTF_8);
+            nameOffsets[record] = (int) poolSize;
+            poolSize += names[record].length;
+        }
+        long poolOffset = HEADER + (long) count * (RECORD + NAME_SLOT);
+        if (poolOffset + poolSize > Integer.MAX_VALUE) {
+            throw new IOException("Player snapshot would exceed 2 GiB");
+        }
+
+        // (hash, record) pairs packed into longs sort by hash first
+        var nameSlots = new long[count];
+        for (int record = 0; record < count; record++) {
+            nameSlots[record] = ((long) hash(rows.get(record).getValue().name()) << 32) | record;
+        }
+        Arrays.sort(nameSlots);
+
+        var temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (var channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+             var out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(count);
+            out.writeInt(0);
+            out.writeLong(poolOffset);
+            out.writeLong(generation);
+            for (int record = 0; record < count; record++) {
+                var id = rows.get(record).getKey();
+                var entry = rows.get(record).getValue();
+                out.writeLong(id.getMostSignificantBits());
+                out.writeLong(id.getLeastSignificantBits());
+                out.writeLong(entry.lastSeen());
+                out.writeLong(entry.lastVerified());
+                out.writeInt(nameOffsets[record]);
+                out.writeShort(names[record].length);
+                out.writeShort(0);
+            }
+            for (long slot : nameSlots) {
+                out.writeLong(slot);
+            }
+            for (byte[] name : names) {
+                out.write(name);
+            }
+            out.flush();
+            // durable before the move, the journal is truncated right after
+            channel.force(true);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public int size() {
+        return this.count;
+    }
+
+    /**
+     * @return the file this snapshot is mapped from, {@code null} for the empty snapshot
+     */
+    public @Nullable Path getPath() {
+        return this.path;
+    }
+
+    /**
+     * Releases the mapping. Lookups made afterwards, and possibly ones still running, fail with an
+     * {@link IllegalStateException}.
+     */
+    @Override
+    public void close() {
+        if (this.arena != null && this.closed.compareAndSet(false, true)) {
+            while (true) {
+                try {
+                    this.arena.close();
+                    return;
+                } catch (IllegalStateException e) {
+                    // refused while another thread is in the middle of a lookup, those are short so wait it out
+                    Thread.yield();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the record holding {@code id}, or {@code -1}
+     */
+    public int find(UUID id) {
+        int low = 0;
+        int high = this.count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int offset = HEADER + mid * RECORD;
+            int cmp = Long.compare(this.buffer.getLong(offset), id.getMostSignificantBits());
+            if (cmp == 0) {
+                cmp = Long.compare(this.buffer.getLong(offset + 8), id.getLeastSignificantBits());
+            }
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    public PlayerIndex.@Nullable Entry get(UUID id) {
+        int record = this.find(id);
+        return record >= 0 ? this.entryAt(record) : null;
+    }
+
+    /**
+     * Compares names as bytes in place, only the returned uuid is allocated.
+     */
+    public @Nullable UUID getId(String name) {
+        int hash = hash(name);
+        int slotsOffset = HEADER + this.count * RECORD;
+
+        // first slot with this hash, collisions follow it
+        int low = 0;
+        int high = this.count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (this.buffer.getInt(slotsOffset + mid * NAME_SLOT) < hash) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        byte @Nullable [] bytes = null;
+        for (int slot = low; slot < this.count && this.buffer.getInt(slotsOffset + slot * NAME_SLOT) == hash; slot++) {
+            int record = this.buffer.getInt(slotsOffset + slot * NAME_SLOT + 4);
+            if (bytes == null) {
+                bytes = name.getBytes(StandardCharsets.UTF_8);
+            }
+            if (this.nameEquals(record, bytes)) {
+                return this.idAt(record);
+            }
+        }
+        return null;
+    }
+
+    private boolean nameEquals(int record, byte[] name) {
+        int offset = HEADER + record * RECORD;
+        if (Short.toUnsignedInt(this.buffer.getShort(offset + 36)) != name.length) {
+            return false;
+        }
+        int nameOffset = this.poolOffset + this.buffer.getInt(offset + 32);
+        for (int i = 0; i < name.length; i++) {
+            if (this.buffer.get(nameOffset + i) != name[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public UUID idAt(int record) {
+        int offset = HEADER + record * RECORD;
+        return new UUID(this.buffer.getLong(offset), this.buffer.getLong(offset + 8));
+    }
+
+    public String nameAt(int record) {
+        int offset = HEADER + record * RECORD;
+        var name = new byte[Short.toUnsignedInt(this.buffer.getShort(offset + 36))];
+        this.buffer.get(this.poolOffset + this.buffer.getInt(offset + 32), name);
+        return new String(name, StandardCharsets.UTF_8);
+    }
+
+    public PlayerIndex.Entry entryAt(int record) {
+        int offset = HEADER + record * RECORD;
+        return new PlayerIndex.Entry(this.nameAt(record), this.buffer.getLong(offset + 16), this.buffer.getLong(offset + 24));
+    }
+
+    public void forEach(BiConsumer<UUID, PlayerIndex.Entry> consumer) {
+        for (int record = 0; record < this.count; record++) {
+            consumer.accept(this.idAt(record), this.entryAt(record));
+        }
+    }
+
+    private static int hash(String name) {
+        int h = name.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,28 @@
+package dev.upcraft.ht.aspect.util.cache;
+
+import dev.upcraft.ht.aspect.api.auth.PlayerGameProfile;
+import org.jspecify.annotations.Nullable;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Remote authority the {@link dev.upcraft.ht.aspect.util.PlayerCache} falls back to on a miss.
+ */
+public interface ProfileSource {
+
+    /**
+     * @return whether lookups can currently be made, if {@code false} the cache answers with partial profiles
+     */
+    boolean isAvailable();
+
+    /**
+     * @return a future completing with {@code null} if no such player exists
+     */
+    CompletableFuture<@Nullable PlayerGameProfile> lookupById(UUID id);
+
+    /**
+     * @return a future completing with {@code null} if no such player exists
+     */
+    CompletableFuture<@Nullable PlayerGameProfile> lookupByUsername(String name);
+}
@@ -0,0 +1,41 @@
+package dev.upcraft.ht.aspect.util.cache;
+
+import com.hypixel.hytale.logger.HytaleLogger;
+import com.hypixel.hytale.server.core.auth.ServerAuthManager;
+import dev.upcraft.ht.aspect.api.auth.PlayerGameProfile;
+import org.jspecify.annotations.Nullable;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Looks up profiles through the server's {@link com.hypixel.hytale.server.core.auth.ProfileServiceClient} using its session token.
+ */
+public class SessionProfileSource implements ProfileSource {
+
+    private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
+
+    @Override
+    public boolean isAvailable() {
+        if(!ServerAuthManager.getInstance().hasSessionToken()) {
+            LOGGER.atWarning().atMostEvery(12, TimeUnit.HOURS).log("No session token available, unable to do profile lookup");
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public CompletableFuture<@Nullable PlayerGameProfile> lookupById(UUID id) {
+        var authManager = ServerAuthManager.getInstance();
+        return authManager.getProfileServiceClient().getProfileByUuidAsync(id, authManager.getSessionToken())
+                .thenApply(profile -> profile != null ? new PlayerGameProfile(profile.getUuid(), profile.getUsername()) : null);
+    }
+
+    @Override
+    public CompletableFuture<@Nullable PlayerGameProfile> lookupByUsername(String name) {
+        var authManager = ServerAuthManager.getInstance();
+        return authManager.getProfileServiceClient().getProfileByUsernameAsync(name, authManager.getSessionToken())
+                .thenApply(profile -> profile != null ? new PlayerGameProfile(profile.getUuid(), profile.getUsername()) : null);
+    }
+}
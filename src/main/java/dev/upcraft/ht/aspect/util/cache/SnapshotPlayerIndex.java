@@ -0,0 +1,231 @@
+package dev.upcraft.ht.aspect.util.cache;
+
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+
+/**
+ * A {@link PlayerSnapshot} with a heap {@link PlayerIndex} on top holding everything that changed since it was written.
+ * <p>
+ * Snapshot entries that were updated, renamed or lost their name to another player are shadowed and only the overlay
+ * answers for them. Writes are serialized, reads never lock. A read that races {@link #compact(Path)} releasing the
+ * previous snapshot retries against the new one.
+ */
+public class SnapshotPlayerIndex implements PlayerIndex {
+
+    private final PlayerIndex overlay;
+    private final Set<UUID> shadowed = ConcurrentHashMap.newKeySet();
+    private volatile PlayerSnapshot snapshot = PlayerSnapshot.empty();
+    private volatile int loadCount;
+    // ids changed while a compaction writes the next snapshot, guarded by this
+    private @Nullable Set<UUID> changed;
+
+    public SnapshotPlayerIndex(PlayerIndex overlay) {
+        this.overlay = overlay;
+    }
+
+    /**
+     * Replaces all entries with the ones in {@code snapshot}, releasing the previous one.
+     */
+    public synchronized void load(PlayerSnapshot snapshot) {
+        var previous = this.snapshot;
+        this.overlay.clear();
+        this.shadowed.clear();
+        this.snapshot = snapshot;
+        this.loadCount++;
+        if (previous != snapshot) {
+            previous.close();
+        }
+    }
+
+    /**
+     * Writes all entries to a new snapshot at {@code path} and switches to it, moving everything written out of the
+     * overlay. Writers are not blocked while the snapshot is written, whatever they change meanwhile stays in the overlay.
+     */
+    public void compact(Path path) throws IOException {
+        Set<UUID> changed = ConcurrentHashMap.newKeySet();
+        synchronized (this) {
+            this.changed = changed;
+        }
+
+        PlayerSnapshot next;
+        try {
+            next = PlayerSnapshot.open(PlayerSnapshot.write(path, this));
+        } catch (IOException | RuntimeException e) {
+            synchronized (this) {
+                this.changed = null;
+            }
+            throw e;
+        }
+
+        PlayerSnapshot previous;
+        synchronized (this) {
+            this.changed = null;
+            // ordered so readers always find every entry: shadow changed entries in the next snapshot before
+            // switching to it, and only drop what it holds from the overlay once nothing shadows it anymore
+            for (UUID id : changed) {
+                if (next.find(id) >= 0) {
+                    this.shadowed.add(id);
+                }
+            }
+            previous = this.snapshot;
+            this.snapshot = next;
+            this.shadowed.removeIf(id -> !changed.contains(id) || next.find(id) < 0);
+            var written = new ArrayList<UUID>();
+            this.overlay.forEach((id, entry) -> {
+                if (!changed.contains(id)) {
+                    written.add(id);
+                }
+            });
+            written.forEach(this.overlay::remove);
+        }
+        previous.close();
+    }
+
+    public PlayerSnapshot getSnapshot() {
+        return this.snapshot;
+    }
+
+    /**
+     * @return how often {@link #load(PlayerSnapshot)} replaced all entries, compactions do not count
+     */
+    public int getLoadCount() {
+        return this.loadCount;
+    }
+
+    /**
+     * @return whether the snapshot entry for {@code id} is no longer current
+     */
+    public boolean isShadowed(UUID id) {
+        return this.shadowed.contains(id);
+    }
+
+    @Override
+    public @Nullable Entry get(UUID id) {
+        while (true) {
+            var entry = this.overlay.get(id);
+            if (entry != null || this.shadowed.contains(id)) {
+                return entry;
+            }
+            var snapshot = this.snapshot;
+            try {
+                return snapshot.get(id);
+            } catch (IllegalStateException e) {
+                rethrowUnlessReplaced(snapshot, e);
+            }
+        }
+    }
+
+    @Override
+    public @Nullable UUID getId(String name) {
+        while (true) {
+            var id = this.overlay.getId(name);
+            if (id != null) {
+                return id;
+            }
+            var snapshot = this.snapshot;
+            try {
+                id = snapshot.getId(name);
+                return id != null && !this.shadowed.contains(id) ? id : null;
+            } catch (IllegalStateException e) {
+                rethrowUnlessReplaced(snapshot, e);
+            }
+        }
+    }
+
+    /**
+     * A closed snapshot fails lookups with an {@link IllegalStateException}, which only calls for a retry if it was
+     * replaced in the meantime.
+     */
+    private void rethrowUnlessReplaced(PlayerSnapshot snapshot, IllegalStateException e) {
+        if (this.snapshot == snapshot) {
+            throw e;
+        }
+    }
+
+    @Override
+    public synchronized @Nullable Entry put(UUID id, Entry entry) {
+        var owner = this.getId(entry.name());
+        if (owner != null && !owner.equals(id)) {
+            this.remove(owner);
+        }
+
+        if (this.changed != null) {
+            this.changed.add(id);
+        }
+        var previous = this.get(id);
+        // insert before shadowing so concurrent readers always find the entry somewhere
+        this.overlay.put(id, entry);
+        if (this.snapshot.find(id) >= 0) {
+            this.shadowed.add(id);
+        }
+        return previous;
+    }
+
+    @Override
+    public synchronized @Nullable Entry remove(UUID id) {
+        if (this.changed != null) {
+            this.changed.add(id);
+        }
+        var previous = this.get(id);
+        if (this.snapshot.find(id) >= 0) {
+            this.shadowed.add(id);
+        }
+        this.overlay.remove(id);
+        return previous;
+    }
+
+    @Override
+    public synchronized void clear() {
+        this.load(PlayerSnapshot.empty());
+    }
+
+    @Override
+    public int size() {
+        return this.snapshot.size() - this.shadowed.size() + this.overlay.size();
+    }
+
+    /**
+     * Weakly consistent, if a compaction switches snapshots meanwhile some entries may be passed twice.
+     */
+    @Override
+    public void forEach(BiConsumer<UUID, Entry> consumer) {
+        this.overlay.forEach(consumer);
+        var snapshot = this.snapshot;
+        for (int record = 0; record < snapshot.size(); record++) {
+            UUID id;
+            Entry entry;
+            try {
+                id = snapshot.idAt(record);
+                entry = snapshot.entryAt(record);
+            } catch (IllegalStateException e) {
+                rethrowUnlessReplaced(snapshot, e);
+                // everything the old snapshot held is in the overlay or the new one
+                this.overlay.forEach(consumer);
+                snapshot = this.snapshot;
+                record = -1;
+                continue;
+            }
+            if (!this.shadowed.contains(id)) {
+                consumer.accept(id, entry);
+            }
+        }
+    }
+
+    /**
+     * Releases the snapshot after switching to an empty one, so reads still running on it retry instead of failing.
+     */
+    @Override
+    public synchronized void close() {
+        this.overlay.close();
+        var previous = this.snapshot;
+        this.snapshot = PlayerSnapshot.empty();
+        previous.close();
+    }
+}
@@ -0,0 +1,368 @@
+package dev.upcraft.ht.aspect.util.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalNotification;
+import com.hypixel.hytale.logger.HytaleLogger;
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+
+/**
+ * A size-bounded, LRU-evicting heap tier in front of a {@link DiskPlayerIndex}.
+ * <p>
+ * The tiers are disjoint: evicted entries move to disk, and are promoted back to the heap when they are looked up again.
+ * Names too long for the disk format stay pinned on the heap.
+ * <p>
+ * Lookups and writes never touch the disk tier's files themselves. Evicted entries are parked in {@code evicting}, where
+ * lookups still find them, and cold hits are queued for promotion. Both are applied by {@link #maintain()} on the
+ * maintenance executor.
+ */
+public class TieredPlayerIndex implements PlayerIndex {
+
+    /**
+     * Rough estimate of the heap cost of one entry in a {@link ConcurrentPlayerIndex}, only used for reporting.
+     */
+    public static final long HEAP_BYTES_PER_ENTRY = 210;
+    private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
+
+    private final Cache<UUID, Entry> hot;
+    private final Map<String, UUID> hotByName = new ConcurrentHashMap<>();
+    private final ConcurrentPlayerIndex pinned = new ConcurrentPlayerIndex();
+    private final Map<UUID, Entry> evicting = new ConcurrentHashMap<>();
+    private final Set<UUID> promotions = ConcurrentHashMap.newKeySet();
+    private final List<Queue<UUID>> iterations = new CopyOnWriteArrayList<>();
+    private final DiskPlayerIndex cold;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final Executor maintenance;
+    private final AtomicBoolean maintenanceQueued = new AtomicBoolean();
+    private final AtomicLong hotHits = new AtomicLong();
+    private final AtomicLong coldHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @param maintenance runs {@link #maintain()} whenever there are evictions or promotions to apply, never a world thread
+     */
+    public TieredPlayerIndex(Path coldPath, long maxHotEntries, Executor maintenance) throws IOException {
+        this.cold = new DiskPlayerIndex(coldPath);
+        this.maintenance = maintenance;
+        this.hot = CacheBuilder.newBuilder().maximumSize(maxHotEntries).removalListener(this::onRemoval).build();
+    }
+
+    // may run on any thread, including readers cleaning up after getIfPresent
+    private void onRemoval(RemovalNotification<UUID, Entry> notification) {
+        var id = notification.getKey();
+        var entry = notification.getValue();
+        if (notification.getCause() != RemovalCause.SIZE || id == null || entry == null) {
+            return;
+        }
+
+        this.evicting.put(id, entry);
+        for (Queue<UUID> iteration : this.iterations) {
+            iteration.add(id);
+        }
+        this.scheduleMaintenance();
+    }
+
+    private void scheduleMaintenance() {
+        if (this.maintenanceQueued.compareAndSet(false, true)) {
+            try {
+                this.maintenance.execute(this::maintain);
+            } catch (RejectedExecutionException e) {
+                // shutting down, lookups keep finding parked entries and the next request tries again
+                this.maintenanceQueued.set(false);
+            }
+        }
+    }
+
+    /**
+     * Applies queued promotions and moves parked evictions to disk.
+     */
+    public void maintain() {
+        this.maintenanceQueued.set(false);
+        this.writeLock.lock();
+        try {
+            for (UUID id : this.promotions) {
+                this.promotions.remove(id);
+                this.promoteLocked(id);
+            }
+            this.moveEvicted();
+        } finally {
+            this.writeLock.unlock();
+        }
+    }
+
+    /**
+     * Moves parked evictions to disk, the caller must hold the write lock.
+     */
+    private void moveEvicted() {
+        for (Map.Entry<UUID, Entry> evicted : this.evicting.entrySet()) {
+            var id = evicted.getKey();
+            var entry = evicted.getValue();
+            var current = this.hot.asMap().get(id);
+            // already written again since, the parked entry is stale
+            if (current == null) {
+                // stored before it is unlinked, so lookups always find it in one of the tiers
+                if (!this.cold.put(id, entry)) {
+                    this.pinned.put(id, entry);
+                }
+            }
+            if (current == null || !current.name().equals(entry.name())) {
+                this.hotByName.remove(entry.name(), id);
+            }
+            this.evicting.remove(id, entry);
+        }
+    }
+
+    @Override
+    public @Nullable Entry get(UUID id) {
+        var entry = this.hot.getIfPresent(id);
+        if (entry == null) {
+            entry = this.pinned.get(id);
+        }
+        if (entry == null) {
+            entry = this.evicting.get(id);
+        }
+        if (entry != null) {
+            this.hotHits.incrementAndGet();
+            return entry;
+        }
+
+        entry = this.cold.get(id);
+        if (entry != null) {
+            this.coldHits.incrementAndGet();
+            this.promote(id);
+            return entry;
+        }
+
+        // promoted while looking, it is put on the heap before it leaves the disk
+        entry = this.hot.asMap().get(id);
+        if (entry != null) {
+            this.hotHits.incrementAndGet();
+            return entry;
+        }
+
+        this.misses.incrementAndGet();
+        return null;
+    }
+
+    @Override
+    public @Nullable UUID getId(String name) {
+        var id = this.hotByName.get(name);
+        if (id == null) {
+            id = this.pinned.getId(name);
+        }
+        if (id != null) {
+            this.hotHits.incrementAndGet();
+            return id;
+        }
+
+        id = this.cold.getId(name);
+        if (id != null) {
+            this.coldHits.incrementAndGet();
+            this.promote(id);
+            return id;
+        }
+
+        id = this.hotByName.get(name);
+        if (id != null) {
+            this.hotHits.incrementAndGet();
+            return id;
+        }
+
+        this.misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Readers only queue the promotion, moving the entry writes to the disk tier.
+     */
+    private void promote(UUID id) {
+        if (this.promotions.add(id)) {
+            this.scheduleMaintenance();
+        }
+    }
+
+    private void promoteLocked(UUID id) {
+        var entry = this.cold.get(id);
+        if (entry != null) {
+            this.hot.put(id, entry);
+            this.hotByName.put(entry.name(), id);
+            this.cold.remove(id);
+            // iterations registered after this point find it on the heap
+            for (Queue<UUID> iteration : this.iterations) {
+                iteration.add(id);
+            }
+        }
+    }
+
+    @Override
+    public @Nullable Entry put(UUID id, Entry entry) {
+        this.writeLock.lock();
+        try {
+            var owner = this.findId(entry.name());
+            if (owner != null && !owner.equals(id)) {
+                this.removeLocked(owner);
+            }
+
+            var previous = this.hot.getIfPresent(id);
+            if (previous == null) {
+                previous = this.evicting.get(id);
+            }
+            if (previous == null) {
+                previous = this.pinned.get(id);
+            }
+            if (previous == null) {
+                previous = this.cold.get(id);
+            }
+
+            // insert before removing from the other tiers so concurrent readers always find the entry somewhere
+            this.hot.put(id, entry);
+            this.hotByName.put(entry.name(), id);
+            if (previous != null && !previous.name().equals(entry.name())) {
+                this.hotByName.remove(previous.name(), id);
+            }
+            this.evicting.remove(id);
+            this.pinned.remove(id);
+            this.cold.remove(id);
+            return previous;
+        } finally {
+            this.writeLock.unlock();
+        }
+    }
+
+    @Override
+    public @Nullable Entry remove(UUID id) {
+        this.writeLock.lock();
+        try {
+            return this.removeLocked(id);
+        } finally {
+            this.writeLock.unlock();
+        }
+    }
+
+    private @Nullable Entry removeLocked(UUID id) {
+        var previous = this.hot.asMap().remove(id);
+        if (previous == null) {
+            previous = this.evicting.remove(id);
+        }
+        if (previous != null) {
+            this.hotByName.remove(previous.name(), id);
+        }
+        var pinnedEntry = this.pinned.remove(id);
+        var coldEntry = this.cold.remove(id);
+        return previous != null ? previous : pinnedEntry != null ? pinnedEntry : coldEntry;
+    }
+
+    /**
+     * Like {@link #get(UUID)}, without promoting or counting the lookup.
+     */
+    private @Nullable Entry peek(UUID id) {
+        var entry = this.hot.asMap().get(id);
+        if (entry == null) {
+            entry = this.pinned.get(id);
+        }
+        if (entry == null) {
+            entry = this.evicting.get(id);
+        }
+        return entry != null ? entry : this.cold.get(id);
+    }
+
+    private @Nullable UUID findId(String name) {
+        // parked evictions keep their name in hotByName until they are moved
+        var id = this.hotByName.get(name);
+        if (id == null) {
+            id = this.pinned.getId(name);
+        }
+        return id != null ? id : this.cold.getId(name);
+    }
+
+    @Override
+    public void clear() {
+        this.writeLock.lock();
+        try {
+            this.hot.invalidateAll();
+            this.hotByName.clear();
+            this.evicting.clear();
+            this.promotions.clear();
+            this.pinned.clear();
+            this.cold.clear();
+        } finally {
+            this.writeLock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        return (int) this.hot.size() + this.pinned.size() + this.evicting.size() + this.cold.size();
+    }
+
+    /**
+     * Never blocks writers. Everything that moves between the tiers while iterating is passed again with its current value
+     * at the end, so an entry that moves may be passed twice but is never missed.
+     */
+    @Override
+    public void forEach(BiConsumer<UUID, Entry> consumer) {
+        var moved = new ConcurrentLinkedQueue<UUID>();
+        this.iterations.add(moved);
+        try {
+            this.hot.asMap().forEach(consumer);
+            this.pinned.forEach(consumer);
+            this.evicting.forEach(consumer);
+            this.cold.forEach(consumer);
+            for (UUID id : moved) {
+                var entry = this.peek(id);
+                if (entry != null) {
+                    consumer.accept(id, entry);
+                }
+            }
+        } finally {
+            this.iterations.remove(moved);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            this.cold.close();
+        } catch (IOException e) {
+            LOGGER.atWarning().withCause(e).log("Unable to close cold player cache tier");
+        }
+    }
+
+    public long getHotHits() {
+        return this.hotHits.get();
+    }
+
+    public long getColdHits() {
+        return this.coldHits.get();
+    }
+
+    public long getMisses() {
+        return this.misses.get();
+    }
+
+    public int getColdSize() {
+        return this.cold.size();
+    }
+
+    public long getEstimatedHeapSavedBytes() {
+        return this.cold.size() * HEAP_BYTES_PER_ENTRY;
+    }
+}
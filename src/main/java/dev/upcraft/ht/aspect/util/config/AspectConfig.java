@@ -1,6 +1,216 @@
 package dev.upcraft.ht.aspect.util.config;
 
-public class AspectConfig {
+import com.hypixel.hytale.logger.HytaleLogger;
+import dev.upcraft.ht.aspect.util.Env;
 
-    // TODO implement
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+
+/**
+ * Typed configuration read from the environment (see {@link Env}, which includes the {@code .env} files).
+ * <p>
+ * All keys are parsed and validated together into one immutable snapshot that is swapped in atomically, so a reader
+ * never sees a mix of old and new values. A reload with any invalid value is rejected as a whole.
+ */
+public final class AspectConfig {
+
+    private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
+    private static final List<ConfigKey<?>> KEYS = new ArrayList<>();
+    private static final List<Consumer<Set<ConfigKey<?>>>> LISTENERS = new CopyOnWriteArrayList<>();
+    private static volatile Values values = new Values(new long[0], new Object[0]);
+    private static boolean loaded;
+
+    public static final ConfigKey<String> PLAYER_CACHE_INDEX = string("ASPECT_PLAYER_CACHE_INDEX", "concurrent", value -> value.equals("concurrent") || value.equals("compact"), "one of concurrent, compact");
+    public static final ConfigKey<String> PLAYER_CACHE_FORMAT = string("ASPECT_PLAYER_CACHE_FORMAT", "binary", value -> value.equals("binary") || value.equals("json"), "one of binary, json");
+    public static final ConfigKey.LongKey PLAYER_CACHE_HOT_MAX_ENTRIES = longKey("ASPECT_PLAYER_CACHE_HOT_MAX_ENTRIES", 0, value -> value >= 0, ">= 0");
+    public static final ConfigKey.IntKey PLAYER_CACHE_BULK_CONCURRENCY = intKey("ASPECT_PLAYER_CACHE_BULK_CONCURRENCY", 8, value -> value >= 1, ">= 1");
+    public static final ConfigKey.LongKey PLAYER_CACHE_NEGATIVE_TTL_SECONDS = longKey("ASPECT_PLAYER_CACHE_NEGATIVE_TTL_SECONDS", 300, value -> value >= 0, ">= 0");
+    public static final ConfigKey.LongKey PLAYER_CACHE_REFRESH_AFTER_SECONDS = longKey("ASPECT_PLAYER_CACHE_REFRESH_AFTER_SECONDS", 604800, value -> true, "a number, <= 0 disables refreshing");
+    public static final ConfigKey.IntKey PLAYER_CACHE_REFRESH_CONCURRENCY = intKey("ASPECT_PLAYER_CACHE_REFRESH_CONCURRENCY", 2, value -> value >= 1, ">= 1");
+    public static final ConfigKey.LongKey PLAYER_CACHE_SEEN_WRITE_INTERVAL_SECONDS = longKey("ASPECT_PLAYER_CACHE_SEEN_WRITE_INTERVAL_SECONDS", 3600, value -> value >= 0, ">= 0");
+    public static final ConfigKey.BooleanKey PLAYER_CACHE_WRITE_BEHIND = booleanKey("ASPECT_PLAYER_CACHE_WRITE_BEHIND", true);
+    public static final ConfigKey.LongKey PLAYER_CACHE_FLUSH_INTERVAL_SECONDS = longKey("ASPECT_PLAYER_CACHE_FLUSH_INTERVAL_SECONDS", 30, value -> value >= 1, ">= 1");
+    public static final ConfigKey.IntKey PLAYER_CACHE_FLUSH_MAX_DIRTY = intKey("ASPECT_PLAYER_CACHE_FLUSH_MAX_DIRTY", 256, value -> value >= 1, ">= 1");
+    public static final ConfigKey.LongKey PLAYER_CACHE_JOURNAL_COMPACT_BYTES = longKey("ASPECT_PLAYER_CACHE_JOURNAL_COMPACT_BYTES", 4194304, value -> value >= 0, ">= 0");
+    public static final ConfigKey<String> PLAYER_CACHE_NAME_COMPLETION = string("ASPECT_PLAYER_CACHE_NAME_COMPLETION", "auto", value -> value.equals("auto") || value.equals("true") || value.equals("false"), "one of auto, true, false");
+    public static final ConfigKey<String> PLAYER_CACHE_SHARED_DIRECTORY = string("ASPECT_PLAYER_CACHE_SHARED_DIRECTORY", "", value -> true, "a directory, empty disables sharing");
+    public static final ConfigKey.LongKey PLAYER_CACHE_SHARED_POLL_MILLIS = longKey("ASPECT_PLAYER_CACHE_SHARED_POLL_MILLIS", 1000, value -> value >= 10, ">= 10");
+    public static final ConfigKey.LongKey PLAYER_CACHE_SHARED_COMPACT_BYTES = longKey("ASPECT_PLAYER_CACHE_SHARED_COMPACT_BYTES", 67108864, value -> value >= 0, ">= 0");
+    public static final ConfigKey.BooleanKey PLAYER_CACHE_COMPACT_JSON = booleanKey("ASPECT_PLAYER_CACHE_COMPACT_JSON", false);
+
+    public static final ConfigKey.DoubleKey PROFILE_LOOKUP_RATE = doubleKey("ASPECT_PROFILE_LOOKUP_RATE", 10, value -> value > 0, "> 0");
+    public static final ConfigKey.IntKey PROFILE_LOOKUP_BURST = intKey("ASPECT_PROFILE_LOOKUP_BURST", 20, value -> value >= 1, ">= 1");
+    public static final ConfigKey.IntKey PROFILE_LOOKUP_MAX_CONCURRENT = intKey("ASPECT_PROFILE_LOOKUP_MAX_CONCURRENT", 8, value -> value >= 1, ">= 1");
+    public static final ConfigKey.LongKey PROFILE_LOOKUP_TIMEOUT_MILLIS = longKey("ASPECT_PROFILE_LOOKUP_TIMEOUT_MILLIS", 5000, value -> value >= 1, ">= 1");
+    public static final ConfigKey.IntKey PROFILE_LOOKUP_FAILURE_THRESHOLD = intKey("ASPECT_PROFILE_LOOKUP_FAILURE_THRESHOLD", 5, value -> value >= 1, ">= 1");
+    public static final ConfigKey.LongKey PROFILE_LOOKUP_OPEN_SECONDS = longKey("ASPECT_PROFILE_LOOKUP_OPEN_SECONDS", 30, value -> value >= 0, ">= 0");
+
+    public static final ConfigKey.BooleanKey BROADCAST_TRUST_HIDDEN_INDEX = booleanKey("ASPECT_BROADCAST_TRUST_HIDDEN_INDEX", false);
+    public static final ConfigKey.BooleanKey BROADCAST_MERGE_DUPLICATES = booleanKey("ASPECT_BROADCAST_MERGE_DUPLICATES", false);
+
+    public static final ConfigKey.BooleanKey ENV_WATCH = booleanKey("ASPECT_ENV_WATCH", false);
+
+    public static final ConfigKey.IntKey SCHEDULER_MAX_CONCURRENT = intKey("ASPECT_SCHEDULER_MAX_CONCURRENT", 64, value -> value >= 1, ">= 1");
+    public static final ConfigKey.IntKey SCHEDULER_MAX_QUEUED = intKey("ASPECT_SCHEDULER_MAX_QUEUED", 4096, value -> value >= 0, ">= 0");
+    public static final ConfigKey.LongKey SCHEDULER_TICK_BUDGET_MICROS = longKey("ASPECT_SCHEDULER_TICK_BUDGET_MICROS", 2000, value -> value >= 1, ">= 1");
+
+    public static final ConfigKey<Set<String>> METRICS_EXPORTERS = key("ASPECT_METRICS_EXPORTERS", Set.of(), value -> value.isBlank() ? Set.of() : Set.of(value.trim().split("\\s*,\\s*")), value -> Set.of("log", "jfr").containsAll(value), "comma separated list of log, jfr");
+    public static final ConfigKey.LongKey METRICS_EXPORT_INTERVAL_SECONDS = longKey("ASPECT_METRICS_EXPORT_INTERVAL_SECONDS", 60, value -> value >= 1, ">= 1");
+
+    static {
+        synchronized (AspectConfig.class) {
+            values = load(true);
+            loaded = true;
+        }
+        Env.addListener((changedKeys, previous, current) -> reload());
+    }
+
+    private AspectConfig() {
+    }
+
+    public static ConfigKey.IntKey intKey(String name, int defaultValue, Predicate<Integer> validator, String requirement) {
+        return register(slot -> new ConfigKey.IntKey(name, defaultValue, validator, requirement, slot));
+    }
+
+    public static ConfigKey.LongKey longKey(String name, long defaultValue, Predicate<Long> validator, String requirement) {
+        return register(slot -> new ConfigKey.LongKey(name, defaultValue, validator, requirement, slot));
+    }
+
+    public static ConfigKey.DoubleKey doubleKey(String name, double defaultValue, Predicate<Double> validator, String requirement) {
+        return register(slot -> new ConfigKey.DoubleKey(name, defaultValue, validator, requirement, slot));
+    }
+
+    public static ConfigKey.BooleanKey booleanKey(String name, boolean defaultValue) {
+        return register(slot -> new ConfigKey.BooleanKey(name, defaultValue, slot));
+    }
+
+    public static ConfigKey<String> string(String name, String defaultValue, Predicate<String> validator, String requirement) {
+        return register(slot -> new ConfigKey<>(name, defaultValue, Function.identity(), validator, requirement, slot));
+    }
+
+    public static <T> ConfigKey<T> key(String name, T defaultValue, Function<String, T> parser, Predicate<? super T> validator, String requirement) {
+        return register(slot -> new ConfigKey<>(name, defaultValue, parser, validator, requirement, slot));
+    }
+
+    /**
+     * Keys may also be declared after startup, e.g. by other plugins. Their value is loaded right away.
+     */
+    private static synchronized <K extends ConfigKey<?>> K register(IntFunction<K> factory) {
+        var key = factory.apply(KEYS.size());
+        if (KEYS.stream().anyMatch(existing -> existing.name().equals(key.name()))) {
+            throw new IllegalArgumentException("Duplicate config key: " + key.name());
+        }
+        KEYS.add(key);
+        if (loaded) {
+            values = load(true);
+        }
+        return key;
+    }
+
+    /**
+     * Re-reads every key from the current {@link Env} snapshot and publishes the result atomically.
+     *
+     * @return {@code false} if any value was invalid, in which case nothing changes
+     */
+    public static synchronized boolean reload() {
+        Values next;
+        try {
+            next = load(false);
+        } catch (IllegalArgumentException e) {
+            LOGGER.atWarning().withCause(e).log("Rejected configuration reload, keeping previous values");
+            return false;
+        }
+
+        var previous = values;
+        values = next;
+
+        var changed = new HashSet<ConfigKey<?>>();
+        for (ConfigKey<?> key : KEYS) {
+            if (key.slot >= previous.objects.length || !previous.objects[key.slot].equals(next.objects[key.slot])) {
+                changed.add(key);
+            }
+        }
+        if (!changed.isEmpty()) {
+            var changedKeys = Set.copyOf(changed);
+            for (var listener : LISTENERS) {
+                try {
+                    listener.accept(changedKeys);
+                } catch (RuntimeException e) {
+                    LOGGER.atWarning().withCause(e).log("Configuration change listener failed");
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Called with the keys whose value changed after a successful reload.
+     */
+    public static void addListener(Consumer<Set<ConfigKey<?>>> listener) {
+        LISTENERS.add(listener);
+    }
+
+    public static void removeListener(Consumer<Set<ConfigKey<?>>> listener) {
+        LISTENERS.remove(listener);
+    }
+
+    public static List<ConfigKey<?>> keys() {
+        synchronized (AspectConfig.class) {
+            return List.copyOf(KEYS);
+        }
+    }
+
+    static Values values() {
+        return values;
+    }
+
+    /**
+     * @param lenient whether invalid values fall back to their default instead of failing the whole load
+     */
+    private static Values load(boolean lenient) {
+        var env = Env.snapshot().values();
+        var primitives = new long[KEYS.size()];
+        var objects = new Object[KEYS.size()];
+        for (ConfigKey<?> key : KEYS) {
+            loadKey(key, env.get(key.name()), lenient, primitives, objects);
+        }
+        return new Values(primitives, objects);
+    }
+
+    private static <T> void loadKey(ConfigKey<T> key, String raw, boolean lenient, long[] primitives, Object[] objects) {
+        T value = key.defaultValue();
+        if (raw != null) {
+            try {
+                value = key.parse(raw);
+            } catch (IllegalArgumentException e) {
+                if (!lenient) {
+                    throw e;
+                }
+                LOGGER.atWarning().log("%s, using default %s", e.getMessage(), key.defaultValue());
+            }
+        }
+        objects[key.slot] = value;
+        primitives[key.slot] = key.toBits(value);
+    }
+
+    /**
+     * One consistent set of parsed values, indexed by {@link ConfigKey#slot}.
+     */
+    static final class Values {
+
+        final long[] primitives;
+        final Object[] objects;
+
+        Values(long[] primitives, Object[] objects) {
+            this.primitives = primitives;
+            this.objects = objects;
+        }
+    }
 }
@@ -0,0 +1,147 @@
+package dev.upcraft.ht.aspect.util.config;
+
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * A typed configuration entry, declared once through the factories in {@link AspectConfig}.
+ * <p>
+ * Values are parsed and validated when the configuration is loaded, reading one is an array access on the current
+ * snapshot. The primitive subclasses read without boxing.
+ */
+public class ConfigKey<T> {
+
+    private final String name;
+    private final T defaultValue;
+    private final Function<String, T> parser;
+    private final Predicate<? super T> validator;
+    private final String requirement;
+    final int slot;
+
+    ConfigKey(String name, T defaultValue, Function<String, T> parser, Predicate<? super T> validator, String requirement, int slot) {
+        this.name = name;
+        this.defaultValue = defaultValue;
+        this.parser = parser;
+        this.validator = validator;
+        this.requirement = requirement;
+        this.slot = slot;
+        if (!validator.test(defaultValue)) {
+            throw new IllegalArgumentException("Default value %s of %s does not match: %s".formatted(defaultValue, name, requirement));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public T get() {
+        return (T) AspectConfig.values().objects[this.slot];
+    }
+
+    public String name() {
+        return this.name;
+    }
+
+    public T defaultValue() {
+        return this.defaultValue;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the value can not be parsed or is rejected by the validator
+     */
+    T parse(String raw) {
+        T value;
+        try {
+            value = Objects.requireNonNull(this.parser.apply(raw.strip()));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid value '%s' for %s".formatted(raw, this.name), e);
+        }
+        if (!this.validator.test(value)) {
+            throw new IllegalArgumentException("Invalid value '%s' for %s, expected %s".formatted(raw, this.name, this.requirement));
+        }
+        return value;
+    }
+
+    /**
+     * @return the value encoded for the primitive slot, only meaningful for the primitive subclasses
+     */
+    long toBits(T value) {
+        return 0L;
+    }
+
+    @Override
+    public String toString() {
+        return "ConfigKey[" + this.name + "]";
+    }
+
+    public static final class IntKey extends ConfigKey<Integer> {
+
+        IntKey(String name, int defaultValue, Predicate<Integer> validator, String requirement, int slot) {
+            super(name, defaultValue, Integer::parseInt, validator, requirement, slot);
+        }
+
+        public int getInt() {
+            return (int) AspectConfig.values().primitives[this.slot];
+        }
+
+        @Override
+        long toBits(Integer value) {
+            return value;
+        }
+    }
+
+    public static final class LongKey extends ConfigKey<Long> {
+
+        LongKey(String name, long defaultValue, Predicate<Long> validator, String requirement, int slot) {
+            super(name, defaultValue, Long::parseLong, validator, requirement, slot);
+        }
+
+        public long getLong() {
+            return AspectConfig.values().primitives[this.slot];
+        }
+
+        @Override
+        long toBits(Long value) {
+            return value;
+        }
+    }
+
+    public static final class DoubleKey extends ConfigKey<Double> {
+
+        DoubleKey(String name, double defaultValue, Predicate<Double> validator, String requirement, int slot) {
+            super(name, defaultValue, Double::parseDouble, validator, requirement, slot);
+        }
+
+        public double getDouble() {
+            return Double.longBitsToDouble(AspectConfig.values().primitives[this.slot]);
+        }
+
+        @Override
+        long toBits(Double value) {
+            return Double.doubleToRawLongBits(value);
+        }
+    }
+
+    public static final class BooleanKey extends ConfigKey<Boolean> {
+
+        BooleanKey(String name, boolean defaultValue, int slot) {
+            super(name, defaultValue, BooleanKey::parseStrict, value -> true, "true or false", slot);
+        }
+
+        public boolean getBoolean() {
+            return AspectConfig.values().primitives[this.slot] != 0L;
+        }
+
+        @Override
+        long toBits(Boolean value) {
+            return value ? 1L : 0L;
+        }
+
+        private static Boolean parseStrict(String value) {
+            if (value.equalsIgnoreCase("true")) {
+                return true;
+            } else if (value.equalsIgnoreCase("false")) {
+                return false;
+            }
+            throw new IllegalArgumentException("Not a boolean: " + value);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package dev.upcraft.ht.aspect.util.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Emits one JFR event per metric, so they show up next to GC and thread data in a flight recording.
+ * Events are only created while a recording with {@value #EVENT_NAME} enabled is running.
+ */
+public class JfrMetricExporter implements MetricExporter {
+
+    public static final String EVENT_NAME = "dev.upcraft.aspect.Metric";
+    private static final EventType EVENT_TYPE = EventType.getEventType(MetricEvent.class);
+
+    @Override
+    public void export(Metrics.Snapshot snapshot) {
+        if (!EVENT_TYPE.isEnabled()) {
+            return;
+        }
+
+        snapshot.counters().forEach((name, value) -> emit(name, "counter", value, 0, 0, 0));
+        snapshot.gauges().forEach((name, value) -> emit(name, "gauge", value, 0, 0, 0));
+        snapshot.histograms().forEach((name, histogram) -> emit(name, "histogram", histogram.count(), histogram.valueAt(0.5), histogram.valueAt(0.99), histogram.max()));
+    }
+
+    private static void emit(String name, String type, long value, long p50, long p99, long max) {
+        var event = new MetricEvent();
+        event.metric = name;
+        event.type = type;
+        event.value = value;
+        event.p50 = p50;
+        event.p99 = p99;
+        event.max = max;
+        event.commit();
+    }
+
+    @Name(EVENT_NAME)
+    @Label("Aspect Metric")
+    @Category("Aspect")
+    @Description("Periodic snapshot of an Aspect metric")
+    static class MetricEvent extends Event {
+
+        @Label("Metric")
+        String metric;
+
+        @Label("Type")
+        String type;
+
+        @Label("Value")
+        @Description("Counter or gauge value, sample count for histograms")
+        long value;
+
+        @Label("p50")
+        @Timespan
+        long p50;
+
+        @Label("p99")
+        @Timespan
+        long p99;
+
+        @Label("Max")
+        @Timespan
+        long max;
+    }
+}
@@ -0,0 +1,31 @@
+package dev.upcraft.ht.aspect.util.metrics;
+
+import com.hypixel.hytale.logger.HytaleLogger;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dumps all metrics to the server log, histograms are assumed to hold nanoseconds and are reported in microseconds.
+ */
+public class LogMetricExporter implements MetricExporter {
+
+    private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
+
+    @Override
+    public void export(Metrics.Snapshot snapshot) {
+        var builder = new StringBuilder("Aspect metrics:");
+        snapshot.counters().forEach((name, value) -> builder.append("\n  ").append(name).append(" = ").append(value));
+        snapshot.gauges().forEach((name, value) -> builder.append("\n  ").append(name).append(" = ").append(value));
+        snapshot.histograms().forEach((name, histogram) -> builder.append("\n  ").append(name)
+                .append(" count=").append(histogram.count())
+                .append(" mean=").append(micros(Math.round(histogram.mean()))).append("us")
+                .append(" p50=").append(micros(histogram.valueAt(0.5))).append("us")
+                .append(" p99=").append(micros(histogram.valueAt(0.99))).append("us")
+                .append(" max=").append(micros(histogram.max())).append("us"));
+        LOGGER.atInfo().log("%s", builder);
+    }
+
+    private static long micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+}
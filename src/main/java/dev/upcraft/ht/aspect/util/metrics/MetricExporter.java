@@ -0,0 +1,10 @@
+package dev.upcraft.ht.aspect.util.metrics;
+
+/**
+ * Receives periodic snapshots of all metrics, see {@link Metrics#addExporter(MetricExporter)}.
+ */
+@FunctionalInterface
+public interface MetricExporter {
+
+    void export(Metrics.Snapshot snapshot);
+}
@@ -0,0 +1,113 @@
+package dev.upcraft.ht.aspect.util.metrics;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.hypixel.hytale.logger.HytaleLogger;
+import org.jspecify.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Process-wide registry of counters, gauges and latency histograms.
+ * <p>
+ * Look metrics up once and keep the returned instance in a field, updating them never allocates or locks.
+ * Exporters only ever see copies taken by {@link #snapshot()}.
+ */
+public class Metrics {
+
+    private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
+    private static final Map<String, Counter> COUNTERS = new ConcurrentHashMap<>();
+    private static final Map<String, LongSupplier> GAUGES = new ConcurrentHashMap<>();
+    private static final Map<String, Histogram> HISTOGRAMS = new ConcurrentHashMap<>();
+    private static final List<MetricExporter> EXPORTERS = new CopyOnWriteArrayList<>();
+    private static @Nullable ScheduledExecutorService exportExecutor;
+
+    public static Counter counter(String name) {
+        return COUNTERS.computeIfAbsent(name, key -> new Counter());
+    }
+
+    public static Histogram histogram(String name) {
+        return HISTOGRAMS.computeIfAbsent(name, key -> new Histogram());
+    }
+
+    /**
+     * Registers a value that is sampled on export, replacing any previous gauge with the same name.
+     */
+    public static void gauge(String name, LongSupplier value) {
+        GAUGES.put(name, value);
+    }
+
+    public static void removeGauge(String name) {
+        GAUGES.remove(name);
+    }
+
+    public static Snapshot snapshot() {
+        var counters = new TreeMap<String, Long>();
+        COUNTERS.forEach((name, counter) -> counters.put(name, counter.get()));
+        var gauges = new TreeMap<String, Long>();
+        GAUGES.forEach((name, gauge) -> {
+            try {
+                gauges.put(name, gauge.getAsLong());
+            } catch (RuntimeException e) {
+                LOGGER.atFine().withCause(e).log("Unable to sample gauge %s", name);
+            }
+        });
+        var histograms = new TreeMap<String, Histogram.Snapshot>();
+        HISTOGRAMS.forEach((name, histogram) -> histograms.put(name, histogram.snapshot()));
+        return new Snapshot(counters, gauges, histograms);
+    }
+
+    public static void addExporter(MetricExporter exporter) {
+        EXPORTERS.add(exporter);
+    }
+
+    public static void removeExporter(MetricExporter exporter) {
+        EXPORTERS.remove(exporter);
+    }
+
+    /**
+     * Passes a snapshot to every registered exporter, a failing exporter does not affect the others.
+     */
+    public static void export() {
+        if (EXPORTERS.isEmpty()) {
+            return;
+        }
+
+        var snapshot = snapshot();
+        for (MetricExporter exporter : EXPORTERS) {
+            try {
+                exporter.export(snapshot);
+            } catch (RuntimeException e) {
+                LOGGER.atWarning().withCause(e).log("Metric exporter %s failed", exporter.getClass().getName());
+            }
+        }
+    }
+
+    public static synchronized void startExporting(Duration interval) {
+        stopExporting();
+        var executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("Aspect Metrics Exporter").setDaemon(true).build());
+        executor.scheduleWithFixedDelay(Metrics::export, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+        exportExecutor = executor;
+    }
+
+    public static synchronized void stopExporting() {
+        if (exportExecutor != null) {
+            exportExecutor.shutdownNow();
+            exportExecutor = null;
+        }
+    }
+
+    /**
+     * Values of all metrics at one point in time, sorted by name.
+     */
+    public record Snapshot(Map<String, Long> counters, Map<String, Long> gauges, Map<String, Histogram.Snapshot> histograms) {
+    }
+}
@@ -0,0 +1,92 @@
+package dev.upcraft.ht.aspect.api;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.function.BiConsumer;
+import java.util.function.DoubleSupplier;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.ObjLongConsumer;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SuppressWarnings("unchecked")
+class AccessorSpinnerTest {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private static String staticName = "static";
+    private static int staticCount;
+    private static double staticRatio = 0.5;
+
+    private String name = "instance";
+    private int count = 7;
+    private long total;
+
+    @Test
+    void objectGetterAndSetter() throws Exception {
+        Function<Object, Object> getter = AccessorSpinner.spin(Function.class, "apply", MethodType.methodType(Object.class, Object.class),
+                LOOKUP.findGetter(AccessorSpinnerTest.class, "name", String.class));
+        BiConsumer<Object, Object> setter = AccessorSpinner.spin(BiConsumer.class, "accept", MethodType.methodType(void.class, Object.class, Object.class),
+                LOOKUP.findSetter(AccessorSpinnerTest.class, "name", String.class));
+
+        assertEquals("instance", getter.apply(this));
+        setter.accept(this, "changed");
+        assertEquals("changed", this.name);
+        assertEquals("changed", getter.apply(this));
+    }
+
+    @Test
+    void staticGetter() throws Exception {
+        Supplier<Object> getter = AccessorSpinner.spin(Supplier.class, "get", MethodType.methodType(Object.class),
+                LOOKUP.findStaticGetter(AccessorSpinnerTest.class, "staticName", String.class));
+        DoubleSupplier ratio = AccessorSpinner.spin(DoubleSupplier.class, "getAsDouble", MethodType.methodType(double.class),
+                LOOKUP.findStaticGetter(AccessorSpinnerTest.class, "staticRatio", double.class));
+
+        assertEquals("static", getter.get());
+        assertEquals(0.5, ratio.getAsDouble());
+    }
+
+    @Test
+    void primitiveAccessors() throws Exception {
+        ToIntFunction<Object> count = AccessorSpinner.spin(ToIntFunction.class, "applyAsInt", MethodType.methodType(int.class, Object.class),
+                LOOKUP.findGetter(AccessorSpinnerTest.class, "count", int.class));
+        ObjLongConsumer<Object> total = AccessorSpinner.spin(ObjLongConsumer.class, "accept", MethodType.methodType(void.class, Object.class, long.class),
+                LOOKUP.findSetter(AccessorSpinnerTest.class, "total", long.class));
+        IntConsumer staticCount = AccessorSpinner.spin(IntConsumer.class, "accept", MethodType.methodType(void.class, int.class),
+                LOOKUP.findStaticSetter(AccessorSpinnerTest.class, "staticCount", int.class));
+
+        assertEquals(7, count.applyAsInt(this));
+        total.accept(this, Long.MAX_VALUE);
+        assertEquals(Long.MAX_VALUE, this.total);
+        staticCount.accept(42);
+        assertEquals(42, AccessorSpinnerTest.staticCount);
+    }
+
+    @Test
+    void accessorIsAHiddenClass() throws Exception {
+        Supplier<Object> getter = AccessorSpinner.spin(Supplier.class, "get", MethodType.methodType(Object.class),
+                LOOKUP.findStaticGetter(AccessorSpinnerTest.class, "staticName", String.class));
+
+        assertTrue(getter.getClass().isHidden());
+        assertTrue(getter.getClass().isSynthetic());
+        assertEquals(AccessorSpinner.class.getPackage(), getter.getClass().getPackage());
+    }
+
+    @Test
+    void wrongFieldTypeIsRejected() throws Exception {
+        var handle = LOOKUP.findGetter(AccessorSpinnerTest.class, "name", String.class);
+        assertThrows(IllegalStateException.class, () -> AccessorSpinner.spin(ToIntFunction.class, "applyAsInt", MethodType.methodType(int.class, Object.class), handle));
+    }
+
+    @Test
+    void castFailuresSurfaceOnInvocation() throws Exception {
+        Function<Object, Object> getter = AccessorSpinner.spin(Function.class, "apply", MethodType.methodType(Object.class, Object.class),
+                LOOKUP.findGetter(AccessorSpinnerTest.class, "name", String.class));
+        assertThrows(ClassCastException.class, () -> getter.apply("not the owner"));
+    }
+}
@@ -0,0 +1,85 @@
+package dev.upcraft.ht.aspect.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AspectSchedulerTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private AspectScheduler scheduler;
+
+    @AfterEach
+    void tearDown() {
+        this.release.countDown();
+        this.scheduler.shutdown();
+    }
+
+    @Test
+    void noWaitingTasksWithoutQueue() throws Exception {
+        this.scheduler = new AspectScheduler("Test", 1, 0, Duration.ofMillis(1));
+        var running = this.blocking();
+        assertRejected(this.scheduler.submit(() -> "waiting"));
+
+        this.release.countDown();
+        running.get(5, TimeUnit.SECONDS);
+        this.awaitIdle();
+        assertEquals("next", this.scheduler.submit(() -> "next").get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void queuedTasksRunOnceASlotFrees() throws Exception {
+        this.scheduler = new AspectScheduler("Test", 1, 2, Duration.ofMillis(1));
+        var running = this.blocking();
+        var first = this.scheduler.submit(() -> "first");
+        var second = this.scheduler.submit(() -> "second");
+        assertEquals(2, this.scheduler.getQueueDepth());
+        assertRejected(this.scheduler.submit(() -> "third"));
+
+        this.release.countDown();
+        running.get(5, TimeUnit.SECONDS);
+        assertEquals("first", first.get(5, TimeUnit.SECONDS));
+        assertEquals("second", second.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void shutdownRejectsNewTasks() {
+        this.scheduler = new AspectScheduler("Test", 1, 1, Duration.ofMillis(1));
+        this.scheduler.shutdown();
+        assertRejected(this.scheduler.submit(() -> "late"));
+    }
+
+    private CompletableFuture<String> blocking() throws InterruptedException {
+        var started = new CountDownLatch(1);
+        var future = this.scheduler.submit(() -> {
+            started.countDown();
+            this.release.await();
+            return "blocking";
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        return future;
+    }
+
+    /**
+     * The slot is released right after the future completes, on the task's own thread.
+     */
+    private void awaitIdle() throws InterruptedException {
+        var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (this.scheduler.getRunning() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+    }
+
+    private static void assertRejected(CompletableFuture<?> future) {
+        var error = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(RejectedExecutionException.class, error.getCause());
+    }
+}
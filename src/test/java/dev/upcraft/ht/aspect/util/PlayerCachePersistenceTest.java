@@ -0,0 +1,109 @@
+package dev.upcraft.ht.aspect.util;
+
+import dev.upcraft.ht.aspect.util.cache.ControlledProfileSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlayerCachePersistenceTest {
+
+    private static final int WRITERS = 4;
+    private static final int UPDATES = 2_000;
+
+    @TempDir
+    Path directory;
+
+    private PlayerCache cache;
+
+    @BeforeEach
+    void setUp() {
+        this.cache = new PlayerCache(this.directory.resolve("playercache.json"), new ControlledProfileSource());
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.cache.shutdown();
+    }
+
+    @Test
+    void updatesLeftPendingByABusyJournalAreAppendedByItsHolder() throws Exception {
+        var ids = IntStream.range(0, WRITERS * UPDATES).mapToObj(i -> UUID.randomUUID()).toList();
+        var stop = new AtomicBoolean();
+        // keeps the journal lock busy, so updates regularly find it held and leave their changes behind
+        var flusher = CompletableFuture.runAsync(() -> {
+            while (!stop.get()) {
+                this.cache.flush();
+            }
+        });
+        try (var executor = Executors.newFixedThreadPool(WRITERS)) {
+            for (int writer = 0; writer < WRITERS; writer++) {
+                int first = writer * UPDATES;
+                executor.execute(() -> {
+                    for (int i = first; i < first + UPDATES; i++) {
+                        this.cache.updatePlayerProfile(ids.get(i), "player" + i);
+                    }
+                });
+            }
+        }
+        stop.set(true);
+        flusher.get(5, TimeUnit.SECONDS);
+
+        // no flush after the last update, every one of them must already be in the journal
+        assertEquals(0, this.cache.getDirtyEntries());
+        var journaled = this.journaled();
+        assertEquals(ids.size(), journaled.size());
+        for (int i = 0; i < ids.size(); i++) {
+            assertEquals("player" + i, journaled.get(ids.get(i)));
+        }
+    }
+
+    @Test
+    void shutdownJournalsPendingUpdatesWhenItCanNotSave() throws Exception {
+        var id = UUID.randomUUID();
+        this.cache.startPersistence();
+        // write-behind, a single update stays pending
+        this.cache.updatePlayerProfile(id, "alice");
+        assertEquals(1, this.cache.getDirtyEntries());
+
+        // never loaded, so the final save is skipped
+        this.cache.shutdown();
+        assertEquals("alice", this.journaled().get(id));
+    }
+
+    @Test
+    void newerFormatIsNeitherLoadedNorOverwritten() throws Exception {
+        var id = UUID.randomUUID();
+        var newer = "{\"format_version\":99,\"values\":[{\"uuid\":\"%s\",\"name\":\"alice\",\"last_seen\":0,\"last_verified\":0}]}".formatted(id);
+        // what loading the file does, then the rest of the load
+        this.cache.read(new BufferedReader(new StringReader(newer)));
+        this.cache.syncLoad();
+
+        assertFalse(this.cache.getProfileForId(id, Runnable::run).isDone(), "nothing was loaded");
+        assertFalse(this.cache.compact());
+        var file = Files.writeString(this.directory.resolve("newer.json"), newer);
+        assertThrows(IOException.class, () -> this.cache.importJson(file));
+    }
+
+    private Map<UUID, String> journaled() throws IOException {
+        Map<UUID, String> names = new HashMap<>();
+        new PlayerCacheJournal(this.directory.resolve("playercache.journal")).replay(0, (id, entry) -> names.put(id, entry.name()));
+        return names;
+    }
+}
@@ -0,0 +1,215 @@
+package dev.upcraft.ht.aspect.util;
+
+import dev.upcraft.ht.aspect.api.auth.PlayerGameProfile;
+import dev.upcraft.ht.aspect.util.cache.ControlledProfileSource;
+import dev.upcraft.ht.aspect.util.config.AspectConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlayerCacheSingleFlightTest {
+
+    private static final int CALLERS = 16;
+
+    @TempDir
+    Path directory;
+
+    private ControlledProfileSource source;
+    private PlayerCache cache;
+
+    @BeforeEach
+    void setUp() {
+        this.source = new ControlledProfileSource();
+        this.cache = new PlayerCache(this.directory.resolve("playercache.json"), this.source);
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.cache.shutdown();
+    }
+
+    @Test
+    void concurrentMissesShareOneRemoteLookup() throws Exception {
+        var id = UUID.randomUUID();
+        var lookups = this.concurrently(() -> this.cache.getProfileForId(id, Runnable::run));
+
+        assertEquals(1, this.source.requests());
+        assertEquals(id, this.source.request(0).key());
+        assertEquals(1, this.cache.getRemoteLookups());
+        assertEquals(CALLERS - 1, this.cache.getCoalescedLookups());
+
+        this.source.request(0).future().complete(new PlayerGameProfile(id, "alice"));
+        for (CompletableFuture<PlayerGameProfile> lookup : lookups) {
+            assertEquals("alice", lookup.get(5, TimeUnit.SECONDS).unwrapUsername());
+        }
+    }
+
+    @Test
+    void concurrentUsernameMissesShareOneRemoteLookup() throws Exception {
+        var id = UUID.randomUUID();
+        var lookups = this.concurrently(() -> this.cache.getProfileForUsername("bob", Runnable::run));
+
+        assertEquals(1, this.source.requests());
+        this.source.request(0).future().complete(new PlayerGameProfile(id, "bob"));
+        for (CompletableFuture<PlayerGameProfile> lookup : lookups) {
+            assertEquals(id, lookup.get(5, TimeUnit.SECONDS).unwrapId());
+        }
+    }
+
+    @Test
+    void resultIsCachedAfterTheLookupCompleted() throws Exception {
+        var id = UUID.randomUUID();
+        var first = this.cache.getProfileForId(id, Runnable::run);
+        this.source.request(0).future().complete(new PlayerGameProfile(id, "alice"));
+        first.get(5, TimeUnit.SECONDS);
+
+        var second = this.cache.getProfileForId(id, Runnable::run);
+        assertTrue(second.isDone(), "cache hits complete immediately");
+        assertEquals("alice", second.join().unwrapUsername());
+        assertEquals(1, this.source.requests());
+    }
+
+    @Test
+    void failureReachesEveryCallerAndIsRetried() throws Exception {
+        var id = UUID.randomUUID();
+        var lookups = this.concurrently(() -> this.cache.getProfileForId(id, Runnable::run));
+        this.source.request(0).future().completeExceptionally(new IOException("service down"));
+        for (CompletableFuture<PlayerGameProfile> lookup : lookups) {
+            var error = assertThrows(ExecutionException.class, () -> lookup.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IOException.class, rootCause(error));
+        }
+
+        this.cache.getProfileForId(id, Runnable::run);
+        assertEquals(2, this.source.requests());
+    }
+
+    @Test
+    void unknownPlayerIsNegativelyCached() throws Exception {
+        var id = UUID.randomUUID();
+        var first = this.cache.getProfileForId(id, Runnable::run);
+        this.source.request(0).future().complete(null);
+        assertTrue(first.get(5, TimeUnit.SECONDS).id().isPresent());
+
+        var second = this.cache.getProfileForId(id, Runnable::run);
+        assertTrue(second.isDone());
+        assertEquals(1, this.source.requests());
+    }
+
+    @Test
+    void rejectedLookupAnswersPartiallyWithoutNegativeCaching() throws Exception {
+        var id = UUID.randomUUID();
+        var first = this.cache.getProfileForId(id, Runnable::run);
+        this.source.request(0).future().completeExceptionally(new RejectedExecutionException("rate limited"));
+        assertEquals(id, first.get(5, TimeUnit.SECONDS).unwrapId());
+
+        this.cache.getProfileForId(id, Runnable::run);
+        assertEquals(2, this.source.requests());
+    }
+
+    @Test
+    void cacheHitsNeverResolveTheWorldExecutor() {
+        var id = UUID.randomUUID();
+        this.cache.updatePlayerProfile(id, "alice");
+
+        // no server is running, resolving the default world's executor eagerly would fail
+        var byId = this.cache.getProfileForId(id);
+        var byName = this.cache.getProfileForUsername("alice");
+        assertTrue(byId.isDone());
+        assertEquals("alice", byId.join().unwrapUsername());
+        assertEquals(id, byName.join().unwrapId());
+        assertTrue(this.cache.getProfilesForIds(List.of(id)).isDone());
+    }
+
+    @Test
+    void remoteResultsWithoutAServerAreStillDelivered() throws Exception {
+        var id = UUID.randomUUID();
+        var lookup = this.cache.getProfileForId(id);
+        this.source.request(0).future().complete(new PlayerGameProfile(id, "alice"));
+        assertEquals("alice", lookup.get(5, TimeUnit.SECONDS).unwrapUsername());
+    }
+
+    @Test
+    void staleHitsOnlyRefreshAFewAtATime() throws Exception {
+        var ids = new ArrayList<UUID>();
+        var json = new StringBuilder("{\"format_version\":1,\"values\":[");
+        for (int i = 0; i < CALLERS; i++) {
+            ids.add(UUID.randomUUID());
+            json.append(i > 0 ? "," : "").append("{\"uuid\":\"%s\",\"name\":\"player%s\",\"last_seen\":0,\"last_verified\":0}".formatted(ids.get(i), i));
+        }
+        var stale = Files.writeString(this.directory.resolve("stale.json"), json.append("]}"));
+        this.cache.importJson(stale);
+
+        // served from the cache right away, only the refresh bound reaches the profile source
+        var profiles = this.cache.getProfilesForIds(ids, Runnable::run).get(5, TimeUnit.SECONDS);
+        assertEquals("player0", profiles.get(ids.getFirst()).unwrapUsername());
+        int bound = AspectConfig.PLAYER_CACHE_REFRESH_CONCURRENCY.getInt();
+        assertEquals(bound, this.source.requests());
+        assertEquals(bound, this.cache.getBackgroundRefreshes());
+
+        var refreshed = (UUID) this.source.request(0).key();
+        this.source.request(0).future().complete(new PlayerGameProfile(refreshed, "renamed"));
+        // the refresh finishes on the profile lookup executor, then makes room for the next one
+        var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (this.source.requests() == bound) {
+            assertTrue(System.nanoTime() < deadline, "the finished refresh never made room");
+            this.cache.getProfilesForIds(ids, Runnable::run).get(5, TimeUnit.SECONDS);
+        }
+        assertEquals(bound + 1, this.source.requests());
+        assertEquals("renamed", this.cache.getProfileForId(refreshed, Runnable::run).join().unwrapUsername());
+    }
+
+    /**
+     * Starts {@link #CALLERS} lookups at the same time and waits until all of them were made.
+     */
+    private List<CompletableFuture<PlayerGameProfile>> concurrently(LookupCall call) throws Exception {
+        var start = new CountDownLatch(1);
+        var submitted = new ArrayList<Future<CompletableFuture<PlayerGameProfile>>>();
+        try (var executor = Executors.newFixedThreadPool(CALLERS)) {
+            for (int i = 0; i < CALLERS; i++) {
+                submitted.add(executor.submit(() -> {
+                    start.await();
+                    return call.lookup();
+                }));
+            }
+            start.countDown();
+        }
+
+        var lookups = new ArrayList<CompletableFuture<PlayerGameProfile>>();
+        for (Future<CompletableFuture<PlayerGameProfile>> future : submitted) {
+            var lookup = future.get();
+            assertFalse(lookup.isDone(), "nothing completes before the remote lookup does");
+            lookups.add(lookup);
+        }
+        return lookups;
+    }
+
+    private static Throwable rootCause(Throwable error) {
+        while (error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+
+    @FunctionalInterface
+    private interface LookupCall {
+
+        CompletableFuture<PlayerGameProfile> lookup();
+    }
+}
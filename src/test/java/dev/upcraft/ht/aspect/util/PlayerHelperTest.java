@@ -0,0 +1,54 @@
+package dev.upcraft.ht.aspect.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlayerHelperTest {
+
+    @Test
+    void worldRejectingTheBroadcastOnlyFailsItsOwnPart() {
+        var ran = new ArrayList<String>();
+        Executor rejecting = task -> {
+            throw new RejectedExecutionException("shutting down");
+        };
+        Map<String, Executor> worlds = Map.of("default", Runnable::run, "closing", rejecting, "other", Runnable::run);
+
+        var future = PlayerHelper.runOnEach(List.of("default", "closing", "other"), worlds::get, ran::add);
+
+        assertEquals(List.of("default", "other"), ran);
+        var error = assertThrows(CompletionException.class, future::join);
+        assertInstanceOf(RejectedExecutionException.class, error.getCause());
+    }
+
+    @Test
+    void onlyCheckedRecipientsCanHideTheSender() {
+        var sender = UUID.randomUUID();
+        var hiding = UUID.randomUUID();
+        var unchecked = UUID.randomUUID();
+        var visible = UUID.randomUUID();
+        // every recipient would hide the sender if asked
+        var recipients = List.of(hiding, unchecked, visible);
+
+        assertEquals(List.of(unchecked, visible), send(recipients, sender, Set.of(hiding, visible), id -> !id.equals(visible)));
+        assertEquals(List.of(visible), send(recipients, sender, null, id -> !id.equals(visible)));
+        assertEquals(recipients, send(recipients, sender, Set.of(), id -> true));
+        assertEquals(recipients, send(recipients, null, null, id -> true));
+    }
+
+    private static List<UUID> send(List<UUID> recipients, UUID senderId, Set<UUID> checkOnly, Predicate<UUID> hides) {
+        var received = new ArrayList<UUID>();
+        PlayerHelper.sendToAll(recipients, senderId, checkOnly, id -> id, (id, sender) -> hides.test(id), received::add);
+        return received;
+    }
+}
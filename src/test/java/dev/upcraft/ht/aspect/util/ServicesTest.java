@@ -0,0 +1,115 @@
+package dev.upcraft.ht.aspect.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ServiceLoader;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ServicesTest {
+
+    @Test
+    void providerIsCreatedOnceOnFirstUse() throws Exception {
+        var created = new AtomicInteger();
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var provider = new Services.LazyProvider<>(new TestProvider<>(() -> {
+            created.incrementAndGet();
+            started.countDown();
+            await(release);
+            return new Object();
+        }));
+        assertEquals(0, created.get(), "nothing is created before the first get");
+
+        var first = CompletableFuture.supplyAsync(provider);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        // waits for the creation in progress instead of starting another one
+        var second = CompletableFuture.supplyAsync(provider);
+        release.countDown();
+
+        assertSame(first.get(5, TimeUnit.SECONDS), second.get(5, TimeUnit.SECONDS));
+        assertSame(first.get(), provider.get());
+        assertEquals(1, created.get());
+    }
+
+    @Test
+    void failedCreationIsRetried() {
+        var attempts = new AtomicInteger();
+        var provider = new Services.LazyProvider<>(new TestProvider<>(() -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new IllegalStateException("first attempt fails");
+            }
+            return "created";
+        }));
+
+        assertThrows(IllegalStateException.class, provider::get);
+        assertEquals("created", provider.get());
+        assertEquals(2, attempts.get());
+    }
+
+    @Test
+    void providerLoadingItselfFailsInsteadOfRecursing() {
+        var self = new AtomicReference<Supplier<Object>>();
+        var provider = new Services.LazyProvider<>(new TestProvider<>(() -> self.get().get()));
+        self.set(provider);
+
+        var error = assertThrows(IllegalStateException.class, provider::get);
+        assertTrue(error.getMessage().startsWith("Cyclic service provider dependency"), error.getMessage());
+    }
+
+    @Test
+    void cycleAcrossThreadsFailsInsteadOfDeadlocking() throws Exception {
+        var aStarted = new CountDownLatch(1);
+        var bStarted = new CountDownLatch(1);
+        var providers = new ArrayList<Supplier<Object>>();
+        // a needs b and b needs a, each one is created on its own thread
+        providers.add(new Services.LazyProvider<>(new TestProvider<>(() -> {
+            aStarted.countDown();
+            await(bStarted);
+            return providers.get(1).get();
+        })));
+        providers.add(new Services.LazyProvider<>(new TestProvider<>(() -> {
+            bStarted.countDown();
+            await(aStarted);
+            return providers.get(0).get();
+        })));
+
+        var a = CompletableFuture.supplyAsync(providers.get(0));
+        var b = CompletableFuture.supplyAsync(providers.get(1));
+        for (CompletableFuture<Object> future : List.of(a, b)) {
+            var error = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalStateException.class, error.getCause());
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record TestProvider<T>(Supplier<T> factory) implements ServiceLoader.Provider<T> {
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Class<? extends T> type() {
+            return (Class<? extends T>) Object.class;
+        }
+
+        @Override
+        public T get() {
+            return this.factory.get();
+        }
+    }
+}
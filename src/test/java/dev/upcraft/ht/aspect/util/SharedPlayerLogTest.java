@@ -0,0 +1,81 @@
+package dev.upcraft.ht.aspect.util;
+
+import dev.upcraft.ht.aspect.util.cache.CompactPlayerIndex;
+import dev.upcraft.ht.aspect.util.cache.PlayerIndex;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SharedPlayerLogTest {
+
+    // a few hundred KiB of records, so reads and writes span many chunks
+    private static final int ENTRIES = 10_000;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void appendsSpanningManyChunksAreReadByOthers() throws Exception {
+        var writer = new SharedPlayerLog(this.directory);
+        var reader = new SharedPlayerLog(this.directory);
+        var batch = upserts(ENTRIES, "player");
+        writer.append(batch, (id, entry) -> fail("nothing to catch up with"), new CompactPlayerIndex(), 0);
+
+        Map<UUID, PlayerIndex.Entry> seen = new HashMap<>();
+        assertEquals(ENTRIES, reader.poll(seen::put));
+        for (PlayerCacheJournal.Upsert upsert : batch) {
+            assertEquals(upsert.entry(), seen.get(upsert.uuid()));
+        }
+        assertEquals(0, reader.poll(seen::put));
+    }
+
+    @Test
+    void incompleteRecordIsNotRead() throws Exception {
+        var writer = new SharedPlayerLog(this.directory);
+        writer.append(upserts(ENTRIES, "player"), (id, entry) -> {}, new CompactPlayerIndex(), 0);
+        try (var channel = FileChannel.open(this.directory.resolve("playercache.shared"), StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        var reader = new SharedPlayerLog(this.directory);
+        assertEquals(ENTRIES - 1, reader.poll((id, entry) -> {}));
+        assertEquals(0, reader.poll((id, entry) -> {}));
+    }
+
+    @Test
+    void rewriteReplacesTheLogForEveryReader() throws Exception {
+        var writer = new SharedPlayerLog(this.directory);
+        var reader = new SharedPlayerLog(this.directory);
+        writer.append(upserts(ENTRIES, "old"), (id, entry) -> {}, new CompactPlayerIndex(), 0);
+        assertEquals(ENTRIES, reader.poll((id, entry) -> {}));
+
+        var source = new CompactPlayerIndex();
+        var current = upserts(ENTRIES, "current");
+        current.forEach(upsert -> source.put(upsert.uuid(), upsert.entry()));
+        writer.append(current.subList(0, 1), (id, entry) -> {}, source, 1);
+
+        Map<UUID, PlayerIndex.Entry> seen = new HashMap<>();
+        assertEquals(ENTRIES, reader.poll(seen::put));
+        for (PlayerCacheJournal.Upsert upsert : current) {
+            assertEquals(upsert.entry(), seen.get(upsert.uuid()));
+        }
+    }
+
+    private static List<PlayerCacheJournal.Upsert> upserts(int count, String prefix) {
+        var upserts = new ArrayList<PlayerCacheJournal.Upsert>(count);
+        for (int i = 0; i < count; i++) {
+            upserts.add(new PlayerCacheJournal.Upsert(UUID.randomUUID(), new PlayerIndex.Entry(prefix + i, i, 2L * i)));
+        }
+        return upserts;
+    }
+}
@@ -0,0 +1,122 @@
+package dev.upcraft.ht.aspect.util.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompactPlayerIndexTest {
+
+    @Test
+    void renameThatRebuildsTheTablesCanBeRemoved() {
+        var index = new CompactPlayerIndex();
+        var ids = new ArrayList<UUID>();
+        // the 16th entry fills the initial tables to exactly half, the rename's tombstone tips them over
+        // renaming the last entry, so a leftover name slot would point past the end once it is removed
+        for (int i = 0; i < 16; i++) {
+            ids.add(UUID.randomUUID());
+            index.put(ids.get(i), entry("player" + i));
+        }
+
+        var renamed = ids.getLast();
+        assertEquals("player15", index.put(renamed, entry("renamed")).name());
+        assertEquals(renamed, index.getId("renamed"));
+        assertNull(index.getId("player15"));
+
+        index.remove(renamed);
+        assertNull(index.getId("renamed"));
+        assertNull(index.get(renamed));
+        assertEquals(15, index.size());
+        for (int i = 0; i < 15; i++) {
+            assertEquals(ids.get(i), index.getId("player" + i));
+            assertEquals("player" + i, index.get(ids.get(i)).name());
+        }
+    }
+
+    @Test
+    void matchesAMapUnderRandomChanges() {
+        var random = new Random(42);
+        var index = new CompactPlayerIndex();
+        Map<UUID, String> names = new HashMap<>();
+        List<UUID> ids = new ArrayList<>();
+
+        for (int step = 0; step < 50_000; step++) {
+            int action = random.nextInt(10);
+            if (action < 4 || ids.isEmpty()) {
+                var id = UUID.randomUUID();
+                ids.add(id);
+                put(index, names, id, "player" + random.nextInt(2_000));
+            } else if (action < 8) {
+                put(index, names, ids.get(random.nextInt(ids.size())), "player" + random.nextInt(2_000));
+            } else {
+                var id = ids.remove(random.nextInt(ids.size()));
+                var removed = index.remove(id);
+                var expected = names.remove(id);
+                assertEquals(expected, removed == null ? null : removed.name());
+            }
+        }
+
+        assertEquals(names.size(), index.size());
+        Map<String, UUID> owners = new HashMap<>();
+        names.forEach((id, name) -> owners.put(name, id));
+        for (int i = 0; i < 2_000; i++) {
+            assertEquals(owners.get("player" + i), index.getId("player" + i), "player" + i);
+        }
+        for (UUID id : ids) {
+            var entry = index.get(id);
+            assertEquals(names.get(id), entry == null ? null : entry.name());
+        }
+    }
+
+    @Test
+    void forEachDoesNotBlockWriters() throws Exception {
+        var index = new CompactPlayerIndex();
+        var first = UUID.randomUUID();
+        index.put(first, entry("first"));
+        var iterating = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        Map<UUID, String> seen = new HashMap<>();
+        var iteration = CompletableFuture.runAsync(() -> index.forEach((id, entry) -> {
+            seen.put(id, entry.name());
+            iterating.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        }));
+
+        assertTrue(iterating.await(5, TimeUnit.SECONDS));
+        var writer = CompletableFuture.runAsync(() -> {
+            index.put(first, entry("renamed"));
+            index.put(UUID.randomUUID(), entry("late"));
+        });
+        try {
+            writer.get(5, TimeUnit.SECONDS);
+        } finally {
+            release.countDown();
+        }
+        iteration.get(5, TimeUnit.SECONDS);
+        assertEquals(Map.of(first, "first"), seen, "iterates the entries as they were when it started");
+    }
+
+    private static void put(CompactPlayerIndex index, Map<UUID, String> names, UUID id, String name) {
+        // a name belongs to a single player, whoever held it before is dropped
+        names.entrySet().removeIf(e -> e.getValue().equals(name) && !e.getKey().equals(id));
+        names.put(id, name);
+        index.put(id, entry(name));
+    }
+
+    private static PlayerIndex.Entry entry(String name) {
+        return new PlayerIndex.Entry(name, 1L, 2L);
+    }
+}
@@ -0,0 +1,54 @@
+package dev.upcraft.ht.aspect.util.cache;
+
+import dev.upcraft.ht.aspect.api.auth.PlayerGameProfile;
+import org.jspecify.annotations.Nullable;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Profile source whose lookups stay pending until the test completes them.
+ */
+public class ControlledProfileSource implements ProfileSource {
+
+    private final List<Request> requests = new CopyOnWriteArrayList<>();
+    private volatile boolean available = true;
+
+    @Override
+    public boolean isAvailable() {
+        return this.available;
+    }
+
+    public void setAvailable(boolean available) {
+        this.available = available;
+    }
+
+    @Override
+    public CompletableFuture<@Nullable PlayerGameProfile> lookupById(UUID id) {
+        return this.request(id);
+    }
+
+    @Override
+    public CompletableFuture<@Nullable PlayerGameProfile> lookupByUsername(String name) {
+        return this.request(name);
+    }
+
+    private CompletableFuture<@Nullable PlayerGameProfile> request(Object key) {
+        var request = new Request(key, new CompletableFuture<>());
+        this.requests.add(request);
+        return request.future();
+    }
+
+    public int requests() {
+        return this.requests.size();
+    }
+
+    public Request request(int index) {
+        return this.requests.get(index);
+    }
+
+    public record Request(Object key, CompletableFuture<@Nullable PlayerGameProfile> future) {
+    }
+}
@@ -0,0 +1,177 @@
+package dev.upcraft.ht.aspect.util.cache;
+
+import dev.upcraft.ht.aspect.api.auth.PlayerGameProfile;
+import org.jspecify.annotations.Nullable;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GuardedProfileSourceTest {
+
+    private static final Duration NO_TIMEOUT = Duration.ofMinutes(1);
+    private static final Duration LONG_OPEN = Duration.ofMinutes(10);
+
+    private final ControlledProfileSource source = new ControlledProfileSource();
+
+    @Test
+    void burstIsAllowedThenRateLimited() {
+        var guarded = new GuardedProfileSource(this.source, 0.001, 3, 10, NO_TIMEOUT, 5, LONG_OPEN);
+        for (int i = 0; i < 3; i++) {
+            assertFalse(guarded.lookupById(UUID.randomUUID()).isDone());
+        }
+
+        assertRejected(guarded.lookupById(UUID.randomUUID()));
+        assertEquals(3, this.source.requests());
+        assertEquals(1, guarded.getRateLimited());
+    }
+
+    @Test
+    void rateLimitRefillsOverTime() throws Exception {
+        var guarded = new GuardedProfileSource(this.source, 20, 1, 10, NO_TIMEOUT, 5, LONG_OPEN);
+        guarded.lookupById(UUID.randomUUID());
+        assertRejected(guarded.lookupById(UUID.randomUUID()));
+
+        Thread.sleep(100);
+        assertFalse(guarded.lookupById(UUID.randomUUID()).isDone());
+        assertEquals(2, this.source.requests());
+    }
+
+    @Test
+    void concurrencyPermitIsReleasedOnCompletion() {
+        var guarded = new GuardedProfileSource(this.source, 1_000, 100, 1, NO_TIMEOUT, 5, LONG_OPEN);
+        var first = guarded.lookupByUsername("alice");
+        assertRejected(guarded.lookupByUsername("bob"));
+        assertEquals(1, guarded.getConcurrencyLimited());
+
+        this.source.request(0).future().complete(new PlayerGameProfile(UUID.randomUUID(), "alice"));
+        assertTrue(first.isDone());
+        assertFalse(guarded.lookupByUsername("bob").isDone());
+        assertEquals(2, this.source.requests());
+    }
+
+    @Test
+    void slowLookupTimesOutAndReleasesItsPermit() throws Exception {
+        var guarded = new GuardedProfileSource(this.source, 1_000, 100, 1, Duration.ofMillis(50), 5, LONG_OPEN);
+        var lookup = guarded.lookupById(UUID.randomUUID());
+
+        var error = assertThrows(ExecutionException.class, () -> lookup.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(TimeoutException.class, error.getCause());
+        assertEquals(1, guarded.getFailures());
+        assertFalse(guarded.lookupById(UUID.randomUUID()).isDone(), "the timed out lookup no longer holds the permit");
+    }
+
+    @Test
+    void throwingDelegateCountsAsFailure() {
+        var throwing = new ControlledProfileSource() {
+            @Override
+            public CompletableFuture<@Nullable PlayerGameProfile> lookupById(UUID id) {
+                throw new IllegalStateException("broken client");
+            }
+        };
+        var guarded = new GuardedProfileSource(throwing, 1_000, 100, 1, NO_TIMEOUT, 5, LONG_OPEN);
+
+        var error = assertThrows(ExecutionException.class, () -> guarded.lookupById(UUID.randomUUID()).get());
+        assertInstanceOf(IllegalStateException.class, error.getCause());
+        assertEquals(1, guarded.getFailures());
+        assertEquals(0, guarded.getConcurrencyLimited());
+        assertFalse(guarded.lookupByUsername("alice").isDone());
+    }
+
+    @Test
+    void circuitOpensAfterConsecutiveFailures() {
+        var guarded = new GuardedProfileSource(this.source, 1_000, 100, 10, NO_TIMEOUT, 2, LONG_OPEN);
+        this.failLookup(guarded);
+        assertFalse(guarded.isCircuitOpen());
+        this.failLookup(guarded);
+
+        assertTrue(guarded.isCircuitOpen());
+        assertFalse(guarded.isAvailable());
+        assertRejected(guarded.lookupById(UUID.randomUUID()));
+        assertEquals(2, this.source.requests(), "rejected lookups never reach the delegate");
+        assertEquals(1, guarded.getCircuitRejected());
+    }
+
+    @Test
+    void successResetsTheFailureCount() {
+        var guarded = new GuardedProfileSource(this.source, 1_000, 100, 10, NO_TIMEOUT, 2, LONG_OPEN);
+        this.failLookup(guarded);
+        guarded.lookupById(UUID.randomUUID());
+        this.source.request(1).future().complete(null);
+        this.failLookup(guarded);
+
+        assertFalse(guarded.isCircuitOpen());
+    }
+
+    @Test
+    void successfulTrialClosesTheCircuit() throws Exception {
+        var guarded = new GuardedProfileSource(this.source, 1_000, 100, 10, NO_TIMEOUT, 1, Duration.ofMillis(50));
+        this.failLookup(guarded);
+        assertFalse(guarded.isAvailable());
+
+        Thread.sleep(100);
+        assertTrue(guarded.isAvailable());
+        var trial = guarded.lookupById(UUID.randomUUID());
+        assertFalse(trial.isDone());
+        assertRejected(guarded.lookupById(UUID.randomUUID()));
+
+        this.source.request(1).future().complete(null);
+        assertFalse(guarded.isCircuitOpen());
+        assertFalse(guarded.lookupById(UUID.randomUUID()).isDone());
+    }
+
+    @Test
+    void failedTrialReopensTheCircuit() throws Exception {
+        var guarded = new GuardedProfileSource(this.source, 1_000, 100, 10, NO_TIMEOUT, 3, Duration.ofMillis(50));
+        for (int i = 0; i < 3; i++) {
+            this.failLookup(guarded);
+        }
+
+        Thread.sleep(100);
+        guarded.lookupById(UUID.randomUUID());
+        this.source.request(3).future().completeExceptionally(new IOException("still down"));
+
+        // a single failed trial is enough, the threshold only applies while closed
+        assertTrue(guarded.isCircuitOpen());
+        assertFalse(guarded.isAvailable());
+        assertRejected(guarded.lookupById(UUID.randomUUID()));
+    }
+
+    @Test
+    void rejectionsDoNotCountAsFailures() {
+        var guarded = new GuardedProfileSource(this.source, 0.001, 1, 10, NO_TIMEOUT, 1, LONG_OPEN);
+        guarded.lookupById(UUID.randomUUID());
+        for (int i = 0; i < 5; i++) {
+            assertRejected(guarded.lookupById(UUID.randomUUID()));
+        }
+
+        assertFalse(guarded.isCircuitOpen());
+        assertEquals(0, guarded.getFailures());
+    }
+
+    @Test
+    void unavailableDelegateIsReported() {
+        var guarded = new GuardedProfileSource(this.source, 1_000, 100, 10, NO_TIMEOUT, 1, LONG_OPEN);
+        this.source.setAvailable(false);
+        assertFalse(guarded.isAvailable());
+    }
+
+    private void failLookup(GuardedProfileSource guarded) {
+        guarded.lookupById(UUID.randomUUID());
+        this.source.request(this.source.requests() - 1).future().completeExceptionally(new IOException("service down"));
+    }
+
+    private static void assertRejected(CompletableFuture<?> lookup) {
+        assertTrue(lookup.isDone(), "rejections fail right away");
+        var error = assertThrows(ExecutionException.class, lookup::get);
+        assertInstanceOf(RejectedExecutionException.class, error.getCause());
+    }
+}
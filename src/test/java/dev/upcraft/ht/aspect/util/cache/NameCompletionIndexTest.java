@@ -0,0 +1,91 @@
+package dev.upcraft.ht.aspect.util.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NameCompletionIndexTest {
+
+    @Test
+    void exactPrefixMatchesComeFirst() {
+        var index = new NameCompletionIndex();
+        for (String name : List.of("Alice", "alicia", "Alex", "bob", "Blice")) {
+            index.update(null, name);
+        }
+
+        assertEquals(List.of("Alice", "alicia"), index.complete("ALI", 10));
+        assertEquals(List.of("Alice", "alicia", "Alex", "Blice"), index.completeFuzzy("ali", 10, 1));
+        assertEquals(List.of("Alice"), index.completeFuzzy("ali", 1, 1));
+    }
+
+    @Test
+    void nonPositiveLimitFindsNothing() {
+        var index = new NameCompletionIndex();
+        index.update(null, "alice");
+
+        assertEquals(List.of(), index.complete("a", 0));
+        assertEquals(List.of(), index.complete("a", -1));
+        assertEquals(List.of(), index.completeFuzzy("a", -1, 2));
+    }
+
+    @Test
+    void fuzzyMatchesBruteForceDespitePruning() {
+        // a small alphabet gives many shared prefixes, so whole subtrees and siblings get skipped
+        var random = new Random(42);
+        var index = new NameCompletionIndex();
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 3_000; i++) {
+            var name = randomName(random, 1 + random.nextInt(8));
+            names.add(name);
+            index.update(null, name);
+        }
+
+        for (int round = 0; round < 200; round++) {
+            var query = randomName(random, 2 + random.nextInt(4));
+            int maxDistance = 1 + random.nextInt(2);
+            Set<String> expected = new HashSet<>();
+            for (String name : names) {
+                if (prefixDistance(name, query) <= maxDistance) {
+                    expected.add(name);
+                }
+            }
+            assertEquals(expected, new HashSet<>(index.completeFuzzy(query, Integer.MAX_VALUE, maxDistance)), query);
+        }
+    }
+
+    private static String randomName(Random random, int length) {
+        var chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = "abcdef".charAt(random.nextInt(6));
+        }
+        return new String(chars);
+    }
+
+    /**
+     * @return the smallest edit distance between {@code query} and any prefix of {@code name}
+     */
+    private static int prefixDistance(String name, String query) {
+        var row = new int[query.length() + 1];
+        for (int j = 0; j < row.length; j++) {
+            row[j] = j;
+        }
+        int best = row[query.length()];
+        for (int i = 1; i <= name.length(); i++) {
+            var next = new int[row.length];
+            next[0] = i;
+            for (int j = 1; j < row.length; j++) {
+                int substitution = row[j - 1] + (name.charAt(i - 1) == query.charAt(j - 1) ? 0 : 1);
+                next[j] = Math.min(substitution, Math.min(row[j] + 1, next[j - 1] + 1));
+            }
+            row = next;
+            best = Math.min(best, row[query.length()]);
+        }
+        return best;
+    }
+}
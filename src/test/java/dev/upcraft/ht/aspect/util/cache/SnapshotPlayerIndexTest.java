@@ -0,0 +1,123 @@
+package dev.upcraft.ht.aspect.util.cache;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotPlayerIndexTest {
+
+    private static final int ENTRIES = 2_000;
+
+    @TempDir
+    Path directory;
+
+    private final CompactPlayerIndex overlay = new CompactPlayerIndex();
+    private final SnapshotPlayerIndex index = new SnapshotPlayerIndex(this.overlay);
+    private Path path;
+    private List<UUID> ids;
+
+    @BeforeEach
+    void setUp() {
+        this.path = this.directory.resolve("playercache.bin");
+        this.ids = IntStream.range(0, ENTRIES).mapToObj(i -> UUID.randomUUID()).toList();
+        for (int i = 0; i < ENTRIES; i++) {
+            this.index.put(this.ids.get(i), entry("player" + i));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.index.close();
+    }
+
+    @Test
+    void compactionMovesEverythingIntoTheSnapshot() throws Exception {
+        this.index.compact(this.path);
+
+        assertEquals(0, this.overlay.size());
+        assertEquals(ENTRIES, this.index.getSnapshot().size());
+        assertEquals(ENTRIES, this.index.size());
+        for (int i = 0; i < ENTRIES; i++) {
+            assertEquals("player" + i, this.index.get(this.ids.get(i)).name());
+            assertEquals(this.ids.get(i), this.index.getId("player" + i));
+        }
+    }
+
+    @Test
+    void compactionsAlternateFilesAndReleaseThePrevious() throws Exception {
+        this.index.compact(this.path);
+        var first = this.index.getSnapshot();
+
+        this.index.put(this.ids.get(0), entry("renamed"));
+        this.index.remove(this.ids.get(1));
+        assertEquals(1, this.overlay.size(), "only the rename is held by the overlay");
+        this.index.compact(this.path);
+        var second = this.index.getSnapshot();
+
+        assertNotEquals(first.getPath(), second.getPath());
+        assertEquals(second.getPath(), PlayerSnapshot.latest(this.path));
+        assertThrows(IllegalStateException.class, () -> first.get(this.ids.get(2)));
+        assertEquals(0, this.overlay.size());
+        assertEquals(ENTRIES - 1, this.index.size());
+        assertEquals("renamed", this.index.get(this.ids.get(0)).name());
+        assertNull(this.index.getId("player0"));
+        assertNull(this.index.get(this.ids.get(1)));
+
+        try (var reopened = PlayerSnapshot.open(second.getPath())) {
+            assertEquals(ENTRIES - 1, reopened.size());
+            assertEquals(this.ids.get(0), reopened.getId("renamed"));
+        }
+    }
+
+    @Test
+    void changesDuringCompactionAreKept() throws Exception {
+        var stop = new AtomicBoolean();
+        var writer = CompletableFuture.runAsync(() -> {
+            for (int round = 0; !stop.get(); round++) {
+                for (int i = 0; i < 100; i++) {
+                    this.index.put(this.ids.get(i), entry("round" + round + "-" + i));
+                }
+            }
+        });
+        var reader = CompletableFuture.runAsync(() -> {
+            while (!stop.get()) {
+                for (int i = 100; i < ENTRIES; i++) {
+                    assertEquals("player" + i, this.index.get(this.ids.get(i)).name());
+                }
+            }
+        });
+
+        for (int i = 0; i < 20; i++) {
+            this.index.compact(this.path);
+        }
+        stop.set(true);
+        writer.get(5, TimeUnit.SECONDS);
+        reader.get(5, TimeUnit.SECONDS);
+
+        assertEquals(ENTRIES, this.index.size());
+        var last = this.index.get(this.ids.get(99)).name();
+        assertTrue(last.startsWith("round"), last);
+        for (int i = 0; i < 100; i++) {
+            var name = this.index.get(this.ids.get(i)).name();
+            assertEquals(this.ids.get(i), this.index.getId(name));
+        }
+        this.index.compact(this.path);
+        assertEquals(0, this.overlay.size());
+        assertEquals(last, this.index.get(this.ids.get(99)).name());
+    }
+
+    private static PlayerIndex.Entry entry(String name) {
+        return new PlayerIndex.Entry(name, 1L, 2L);
+    }
+}
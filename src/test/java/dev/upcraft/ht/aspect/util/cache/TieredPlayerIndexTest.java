@@ -0,0 +1,192 @@
+package dev.upcraft.ht.aspect.util.cache;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TieredPlayerIndexTest {
+
+    private static final int HOT = 64;
+    private static final int ENTRIES = 5_000;
+
+    @TempDir
+    Path directory;
+
+    private final ExecutorService maintenance = Executors.newSingleThreadExecutor();
+    private TieredPlayerIndex index;
+    private List<UUID> ids;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        this.index = new TieredPlayerIndex(this.directory.resolve("playercache.cold"), HOT, this.maintenance);
+        this.ids = IntStream.range(0, ENTRIES).mapToObj(i -> UUID.randomUUID()).toList();
+        for (int i = 0; i < ENTRIES; i++) {
+            this.index.put(this.ids.get(i), entry("player" + i));
+        }
+        // queued behind the spills, so they have all reached the disk tier once it ran
+        this.maintenance.submit(() -> {}).get();
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.maintenance.close();
+        this.index.close();
+    }
+
+    @Test
+    void evictedEntriesAreStillFound() {
+        assertTrue(this.index.getColdSize() > 0);
+        assertEquals(ENTRIES, this.index.size());
+        for (int i = 0; i < ENTRIES; i++) {
+            assertEquals("player" + i, this.index.getName(this.ids.get(i)));
+            assertEquals(this.ids.get(i), this.index.getId("player" + i));
+        }
+    }
+
+    @Test
+    void renameAcrossTiersUnbindsTheOldName() {
+        var coldId = this.ids.getFirst();
+        this.index.put(coldId, entry("renamed"));
+        assertNull(this.index.getId("player0"));
+        assertEquals(coldId, this.index.getId("renamed"));
+
+        // takes the name of a player that is on disk by now
+        var thief = UUID.randomUUID();
+        this.index.put(thief, entry("player1"));
+        assertEquals(thief, this.index.getId("player1"));
+        assertNull(this.index.get(this.ids.get(1)));
+    }
+
+    @Test
+    void lookupsOnlyQueueSpillsAndPromotions() throws Exception {
+        Queue<Runnable> maintenance = new ArrayDeque<>();
+        var deferred = new TieredPlayerIndex(this.directory.resolve("deferred"), HOT, maintenance::add);
+        try {
+            for (int i = 0; i < 2 * HOT; i++) {
+                deferred.put(this.ids.get(i), entry("player" + i));
+            }
+            assertEquals(0, deferred.getColdSize(), "spills wait for maintenance");
+            assertEquals(2 * HOT, deferred.size());
+            assertEquals("player0", deferred.getName(this.ids.get(0)));
+            runAll(maintenance);
+            assertTrue(deferred.getColdSize() > 0);
+
+            var cold = this.ids.stream().limit(2 * HOT).filter(id -> {
+                var hits = deferred.getColdHits();
+                deferred.get(id);
+                return deferred.getColdHits() > hits;
+            }).findFirst().orElseThrow();
+            assertFalse(maintenance.isEmpty());
+            var coldHits = deferred.getColdHits();
+            assertNotNull(deferred.get(cold));
+            assertEquals(coldHits + 1, deferred.getColdHits(), "only maintenance promotes");
+
+            runAll(maintenance);
+            var hotHits = deferred.getHotHits();
+            assertNotNull(deferred.get(cold));
+            assertEquals(hotHits + 1, deferred.getHotHits());
+        } finally {
+            deferred.close();
+        }
+    }
+
+    @Test
+    void forEachDoesNotBlockWriters() throws Exception {
+        var iterating = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var iteration = CompletableFuture.runAsync(() -> this.index.forEach((id, entry) -> {
+            iterating.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        }));
+
+        assertTrue(iterating.await(5, TimeUnit.SECONDS));
+        var writer = CompletableFuture.runAsync(() -> this.index.put(UUID.randomUUID(), entry("late")));
+        try {
+            writer.get(5, TimeUnit.SECONDS);
+        } finally {
+            release.countDown();
+        }
+        iteration.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void forEachSeesEveryEntryWhileTiersChange() throws Exception {
+        var running = new AtomicBoolean(true);
+        var churn = CompletableFuture.runAsync(() -> {
+            var random = ThreadLocalRandom.current();
+            for (int i = 0; running.get(); i++) {
+                // new players evict to disk, lookups promote back to the heap
+                this.index.put(UUID.randomUUID(), entry("churn" + i));
+                this.index.get(this.ids.get(random.nextInt(ENTRIES)));
+                this.index.getId("player" + random.nextInt(ENTRIES));
+            }
+        });
+
+        try {
+            for (int round = 0; round < 20; round++) {
+                Set<UUID> seen = new HashSet<>();
+                this.index.forEach((id, entry) -> seen.add(id));
+                assertTrue(seen.containsAll(this.ids), "an entry moving between tiers was missed");
+            }
+        } finally {
+            running.set(false);
+        }
+        churn.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void diskReadsNeverMissStableEntriesDuringRehash() throws Exception {
+        var disk = new DiskPlayerIndex(this.directory.resolve("disk"));
+        try {
+            var stable = UUID.randomUUID();
+            disk.put(stable, entry("stable"));
+            var writer = CompletableFuture.runAsync(() -> {
+                // grows the table several times
+                for (int i = 0; i < 200_000; i++) {
+                    disk.put(UUID.randomUUID(), entry("p" + i));
+                }
+            });
+            while (!writer.isDone()) {
+                assertEquals("stable", disk.get(stable).name());
+                assertEquals(stable, disk.getId("stable"));
+            }
+            writer.get();
+            assertEquals(200_001, disk.size());
+        } finally {
+            disk.close();
+        }
+    }
+
+    private static void runAll(Queue<Runnable> tasks) {
+        for (Runnable task = tasks.poll(); task != null; task = tasks.poll()) {
+            task.run();
+        }
+    }
+
+    private static PlayerIndex.Entry entry(String name) {
+        return new PlayerIndex.Entry(name, 1L, 2L);
+    }
+}